@@ -26,21 +26,30 @@ package me.stuntguy3000.java.redditlivebot;
 
 import lombok.Data;
 import me.stuntguy3000.java.redditlivebot.handler.*;
+import me.stuntguy3000.java.redditlivebot.hook.RedditHook;
 import me.stuntguy3000.java.redditlivebot.hook.TelegramHook;
 import me.stuntguy3000.java.redditlivebot.object.Lang;
+import me.stuntguy3000.java.redditlivebot.object.telegram.SendLane;
+import me.stuntguy3000.java.redditlivebot.scheduler.LiveThreadBroadcasterTask;
 
 // @author Luke Anderson | stuntguy3000
 @Data
 public class RedditLiveBot {
+    private static final long SHUTDOWN_DEADLINE = 10 * 1000;
     public static boolean DEBUG = false;
     public static RedditLiveBot instance;
     private static TelegramHook telegramHook;
     private AdminControlHandler adminControlHandler;
     private CommandHandler commandHandler;
     private ConfigHandler configHandler;
+    private DeliveryHandler deliveryHandler;
+    private DeliveryJournalHandler deliveryJournalHandler;
+    private DeliveryKeyHandler deliveryKeyHandler;
     private JenkinsUpdateHandler jenkinsUpdateHandler;
+    private OutboxHandler outboxHandler;
     private PaginationHandler paginationHandler;
     private RedditHandler redditHandler;
+    private SchedulerHandler schedulerHandler;
     private SubscriptionHandler subscriptionHandler;
     private ThreadExecutionHandler threadExecutionHandler;
 
@@ -56,6 +65,8 @@ public class RedditLiveBot {
     private void main() {
         instance = this;
         configHandler = new ConfigHandler();
+        schedulerHandler = new SchedulerHandler();
+        deliveryJournalHandler = new DeliveryJournalHandler();
 
         DEBUG = getConfigHandler().getBotSettings().getDebugMode();
         LogHandler.log("Debug Mode is set to " + DEBUG);
@@ -76,14 +87,19 @@ public class RedditLiveBot {
             LogHandler.log("** Auto Updater is set to false **");
         }
 
+        threadExecutionHandler = new ThreadExecutionHandler();
+        deliveryHandler = new DeliveryHandler();
+        deliveryKeyHandler = new DeliveryKeyHandler();
+        outboxHandler = new OutboxHandler();
+
         connectTelegram();
 
         commandHandler = new CommandHandler();
         adminControlHandler = new AdminControlHandler();
         subscriptionHandler = new SubscriptionHandler();
+        outboxHandler.replay();
         redditHandler = new RedditHandler();
         paginationHandler = new PaginationHandler();
-        threadExecutionHandler = new ThreadExecutionHandler();
 
         TelegramHook.initializeCommands();
     }
@@ -98,16 +114,30 @@ public class RedditLiveBot {
     }
 
     public void shutdown() {
-        if (getRedditHandler().getCurrentLiveThread() != null) {
-            configHandler.getBotSettings().setLastPost(getRedditHandler().getCurrentLiveThread().getLastPost());
-            configHandler.getBotSettings().setCurrentLiveFeed(getRedditHandler().getCurrentLiveThread().getThreadID());
-            Lang.sendDebug("Live current thread - Feed ID: " + configHandler.getBotSettings().getCurrentLiveFeed());
-        } else {
-            Lang.sendDebug("No current thread");
-            configHandler.getBotSettings().setLastPost(-1);
+        schedulerHandler.shutdown();
+
+        // Channel posts still queued are only in the outbox once fanned out, the saved cursors must not pass them
+        long end = System.currentTimeMillis() + SHUTDOWN_DEADLINE;
+
+        if (!deliveryHandler.drain(SendLane.CHANNEL, SHUTDOWN_DEADLINE)
+                || !subscriptionHandler.drain(Math.max(0, end - System.currentTimeMillis()))) {
+            LogHandler.log("Channel posts left unsent, they are posted again at the next startup.");
+        }
+
+        for (LiveThreadBroadcasterTask liveThread : getRedditHandler().getFollowedLiveThreads()) {
+            configHandler.getBotSettings().getFollowedLiveThreads().put(liveThread.getThreadID(), liveThread.getLastForwardedPost());
+            Lang.sendDebug("Live thread followed - Feed ID: " + liveThread.getThreadID());
         }
 
         configHandler.saveConfigs();
+        deliveryJournalHandler.shutdown();
+
+        // Drain what is queued, anything left over is replayed from the outbox at the next startup
+        deliveryHandler.shutdown();
+        threadExecutionHandler.shutdown(SHUTDOWN_DEADLINE);
+        outboxHandler.shutdown();
+        deliveryKeyHandler.shutdown();
+        RedditHook.shutdown();
 
         System.exit(0);
     }
@@ -25,13 +25,22 @@
 package me.stuntguy3000.java.redditlivebot.command;
 
 import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.handler.DeliveryHandler;
 import me.stuntguy3000.java.redditlivebot.handler.RedditHandler;
+import me.stuntguy3000.java.redditlivebot.handler.SchedulerHandler;
+import me.stuntguy3000.java.redditlivebot.handler.ThreadExecutionHandler;
+import me.stuntguy3000.java.redditlivebot.object.Lang;
 import me.stuntguy3000.java.redditlivebot.object.command.Command;
+import me.stuntguy3000.java.redditlivebot.scheduler.LiveThreadBroadcasterTask;
+import me.stuntguy3000.java.redditlivebot.scheduler.ScheduledJob;
 import pro.zackpollard.telegrambot.api.chat.message.Message;
 import pro.zackpollard.telegrambot.api.chat.message.send.ParseMode;
 import pro.zackpollard.telegrambot.api.chat.message.send.SendableTextMessage;
 import pro.zackpollard.telegrambot.api.event.chat.message.CommandMessageReceivedEvent;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author stuntguy3000
  */
@@ -48,10 +57,36 @@ public class AdminCommand extends Command {
         RedditHandler redditHandler = RedditLiveBot.instance.getRedditHandler();
 
         // Current bot status
-        if (redditHandler.getCurrentLiveThread() != null) {
-            statusText = "*Following live thread.* ID: " + redditHandler.getCurrentLiveThread().getThreadID();
+        if (!redditHandler.getFollowedLiveThreads().isEmpty()) {
+            List<String> threadIDs = new ArrayList<>();
+
+            for (LiveThreadBroadcasterTask liveThread : redditHandler.getFollowedLiveThreads()) {
+                threadIDs.add(liveThread.getThreadID());
+            }
+
+            statusText = "*Following " + threadIDs.size() + " live thread(s).* IDs: " + Lang.stringJoin(threadIDs, "", ", ");
+        }
+
+        // Scheduler status
+        SchedulerHandler schedulerHandler = RedditLiveBot.instance.getSchedulerHandler();
+        StringBuilder jobText = new StringBuilder("\n\n*Scheduled jobs:* " + schedulerHandler.getJobCount());
+
+        for (ScheduledJob job : schedulerHandler.getJobs()) {
+            jobText.append(String.format("\n`%s` every %dms, %dms late, last run took %dms",
+                    job.getName(), job.getPeriod(), job.getCurrentLateness(), job.getLastDuration()));
         }
 
+        statusText += jobText.toString();
+
+        // Delivery status
+        ThreadExecutionHandler threadExecutionHandler = RedditLiveBot.instance.getThreadExecutionHandler();
+        DeliveryHandler deliveryHandler = RedditLiveBot.instance.getDeliveryHandler();
+        statusText += String.format("\n\n*Deliveries:* %d in mailboxes, %d queued, %d active worker(s), %d rejected, %d spilled, %d dead lettered, %d sequence gap(s), %d reorder(s) (%s)",
+                deliveryHandler.getMailboxDepth(), threadExecutionHandler.getQueueDepth(), threadExecutionHandler.getActiveWorkers(),
+                deliveryHandler.getRejectedTasks(), deliveryHandler.getSpilledTasks(), deliveryHandler.getDeadLetters(),
+                deliveryHandler.getSequenceGaps(), deliveryHandler.getSequenceReorders(),
+                threadExecutionHandler.isVirtual() ? "virtual threads, " + deliveryHandler.getSaturationPolicy() : deliveryHandler.getSaturationPolicy());
+
         Message message = event.getChat().sendMessage(
                 SendableTextMessage.builder()
                         .message(
@@ -53,7 +53,7 @@ public class AdminControlHandler {
     private HashMap<String, Message> updateMessages = new HashMap<>();
 
     public AdminControlHandler() {
-        adminChat = TelegramHook.getBot().getChat(-115432737);
+        adminChat = TelegramHook.getChat(-115432737);
     }
 
     /**
@@ -62,7 +62,7 @@ public class AdminControlHandler {
      * @param redditThread SubredditChildrenData the data to be posted
      * @param threadID     String the id of the thread
      */
-    public void postNewLiveThread(SubredditChildrenData redditThread, String threadID) {
+    public synchronized void postNewLiveThread(SubredditChildrenData redditThread, String threadID) {
         Message message = updateMessages.get(threadID);
         String lastMessage = lastMessages.get(threadID);
 
@@ -123,16 +123,16 @@ public class AdminControlHandler {
         List<InlineKeyboardButton> buttons = new ArrayList<>();
 
         // Current bot status
-        if (redditHandler.getCurrentLiveThread() != null) {
+        buttons.add(InlineKeyboardButton.builder()
+                .text("Follow a thread").callbackData(
+                        AdminInlineCommandType.START_FOLLOW.getCommandID() + "#" + chat.getId())
+                .build());
+
+        if (!redditHandler.getFollowedLiveThreads().isEmpty()) {
             buttons.add(InlineKeyboardButton.builder()
-                    .text("Unfollow current thread").callbackData(
+                    .text("Unfollow all threads").callbackData(
                             AdminInlineCommandType.STOP_FOLLOW.getCommandID() + "#" + chat.getId())
                     .build());
-        } else {
-            buttons.add(InlineKeyboardButton.builder()
-                    .text("Follow a thread").callbackData(
-                            AdminInlineCommandType.START_FOLLOW.getCommandID() + "#" + chat.getId())
-                    .build());
         }
 
         // Subscription data
@@ -178,6 +178,10 @@ public class AdminControlHandler {
             }
         }
 
+        if (!rows.isEmpty()) {
+            markup.addRow(rows);
+        }
+
         return markup.build();
     }
 }
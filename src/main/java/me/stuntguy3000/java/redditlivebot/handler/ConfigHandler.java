@@ -31,6 +31,7 @@ import me.stuntguy3000.java.redditlivebot.object.config.BotSettings;
 import me.stuntguy3000.java.redditlivebot.object.config.Subscriptions;
 
 import java.io.*;
+import java.util.HashMap;
 
 // @author Luke Anderson | stuntguy3000
 public class ConfigHandler {
@@ -50,6 +51,35 @@ public class ConfigHandler {
         if (subscriptions == null) {
             subscriptions = new Subscriptions();
         }
+
+        migrateLegacyFeed();
+    }
+
+    /**
+     * Moves the single followed feed of older config files into the followed live threads
+     * <p>The legacy currentLiveFeed and lastPost settings are dropped once migrated.</p>
+     */
+    private void migrateLegacyFeed() {
+        String legacyFeed = botSettings.getCurrentLiveFeed();
+
+        if (legacyFeed == null && botSettings.getLastPost() == null) {
+            return;
+        }
+
+        if (botSettings.getFollowedLiveThreads() == null) {
+            botSettings.setFollowedLiveThreads(new HashMap<>());
+        }
+
+        if (legacyFeed != null && !legacyFeed.isEmpty()) {
+            long lastPost = botSettings.getLastPost() == null ? -1 : botSettings.getLastPost();
+
+            botSettings.getFollowedLiveThreads().putIfAbsent(legacyFeed.toLowerCase(), lastPost);
+            LogHandler.log("Migrated followed live thread %s from the legacy config.", legacyFeed);
+        }
+
+        botSettings.setCurrentLiveFeed(null);
+        botSettings.setLastPost(null);
+        saveConfig("config.json");
     }
 
     /**
@@ -157,13 +187,26 @@ public class ConfigHandler {
     }
 
     /**
-     * Set the current live feed
+     * Record a followed live feed and the Unix time of its last post
      *
-     * @param id String the current live feed
+     * @param id String the followed live feed
+     * @param lastPost Long the Unix time of the last post
      */
-    public void setCurrentFeed(String id) {
-        getBotSettings().setCurrentLiveFeed(id);
+    public synchronized void setFollowedFeed(String id, long lastPost) {
+        getBotSettings().getFollowedLiveThreads().put(id.toLowerCase(), lastPost);
+        saveConfig("config.json");
+    }
+
+    /**
+     * Remove a live feed from the followed feeds
+     *
+     * @param id String the live feed no longer followed
+     */
+    public synchronized void removeFollowedFeed(String id) {
+        if (getBotSettings().getFollowedLiveThreads().remove(id.toLowerCase()) != null) {
+            saveConfig("config.json");
+        }
     }
 }
 
-    
+    
\ No newline at end of file
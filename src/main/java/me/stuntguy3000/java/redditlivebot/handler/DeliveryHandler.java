@@ -0,0 +1,701 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.handler;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import lombok.Getter;
+import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.hook.TelegramHook;
+import me.stuntguy3000.java.redditlivebot.hook.TelegramRateLimiter;
+import me.stuntguy3000.java.redditlivebot.object.Lang;
+import me.stuntguy3000.java.redditlivebot.object.config.BotSettings;
+import me.stuntguy3000.java.redditlivebot.object.config.SaturationPolicy;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
+import me.stuntguy3000.java.redditlivebot.object.telegram.SendLane;
+import me.stuntguy3000.java.redditlivebot.scheduler.ForwardMessageTask;
+import pro.zackpollard.telegrambot.api.chat.Chat;
+import pro.zackpollard.telegrambot.api.chat.message.Message;
+import pro.zackpollard.telegrambot.api.chat.message.send.SendableMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules message deliveries to subscribers within Telegram's rate limits
+ * <p>Each delivery is held until its reserved slot and then handed to the ThreadExecutionHandler,
+ * deliveries refused by Telegram's flood control are rescheduled after the requested delay.</p>
+ * <p>Every chat has a mailbox which releases one delivery at a time, the next is only scheduled
+ * once the one before it has completed, so retries never let a later update overtake an earlier
+ * one.</p>
+ * <p>At most deliveryQueueSize deliveries wait in the mailboxes or are collected for digests.
+ * While they are full, the deliverySaturationPolicy in config.json decides what happens to new
+ * deliveries, on the thread of the producer which submits them.</p>
+ * <p>As deliveries complete, the sequence numbers of the updates they carry are checked per chat
+ * and live thread. A skipped sequence is logged as a gap, a repeated or earlier one as a reorder,
+ * so ordered exactly-once delivery can be verified while the bot runs.</p>
+ * <p>Deliveries which fail transiently are retried with exponential backoff and jitter, those
+ * which fail permanently are written to the dead letter log.</p>
+ * <p>Every SendLane has its own queue and worker, which waits for the lane's turn at the global
+ * rate limit so the threads submitting messages never do. Channel posts, admin replies and debug
+ * messages are sent by their lane's worker, deliveries are handed to the ThreadExecutionHandler
+ * by the fan-out lane's worker once their chat's slot has come.</p>
+ *
+ * @author stuntguy3000
+ */
+public class DeliveryHandler {
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 60 * 1000;
+    private static final Gson GSON = new Gson();
+    private static final int DEBUG_QUEUE_SIZE = 100;
+    private static final String SPILL_JOB_NAME = "DeliverySpill";
+    private static final long SPILL_INTERVAL = 1000;
+    private final Path deadLetterFile = Paths.get("delivery-deadletter.json");
+    private final Path spillFile = Paths.get("delivery-spill.json");
+    private final AtomicLong deadLetters = new AtomicLong();
+    @Getter
+    private final TelegramRateLimiter rateLimiter = new TelegramRateLimiter();
+    private final ScheduledExecutorService timer;
+    private final Map<SendLane, ThreadPoolExecutor> lanes = new EnumMap<>(SendLane.class);
+    private final Map<SendLane, AtomicInteger> unsent = new EnumMap<>(SendLane.class);
+    private final Map<String, ArrayDeque<ForwardMessageTask>> mailboxes = new HashMap<>();
+    private final Map<String, Map<String, Long>> completedSequences = new HashMap<>();
+    private final AtomicLong sequenceGaps = new AtomicLong();
+    private final AtomicLong sequenceReorders = new AtomicLong();
+    @Getter
+    private final SaturationPolicy saturationPolicy;
+    private final int capacity;
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final AtomicLong spilledTasks = new AtomicLong();
+    private final Object spillLock = new Object();
+    private int spillPending = 0;
+    private int pending = 0;
+
+    /**
+     * Constructs a new DeliveryHandler
+     */
+    public DeliveryHandler() {
+        BotSettings settings = RedditLiveBot.instance.getConfigHandler().getBotSettings();
+
+        capacity = Math.max(1, settings.getDeliveryQueueSize());
+        saturationPolicy = settings.getDeliverySaturationPolicy() == null
+                ? SaturationPolicy.BLOCK : settings.getDeliverySaturationPolicy();
+
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DeliveryTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (SendLane lane : SendLane.values()) {
+            String threadName = "SendLane-" + lane.name();
+
+            // Debug messages are best effort, once the lane is backed up they are dropped
+            BlockingQueue<Runnable> queue = lane == SendLane.DEBUG
+                    ? new ArrayBlockingQueue<>(DEBUG_QUEUE_SIZE) : new LinkedBlockingQueue<>();
+
+            lanes.put(lane, new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy()));
+            unsent.put(lane, new AtomicInteger());
+        }
+
+        // Spilled deliveries are also pending in the outbox, which replays them at startup
+        try {
+            Files.deleteIfExists(spillFile);
+        } catch (IOException e) {
+            LogHandler.log("Unable to remove spilled deliveries: %s", e.getMessage());
+        }
+
+        if (saturationPolicy == SaturationPolicy.SPILL) {
+            RedditLiveBot.instance.getSchedulerHandler().schedule(SPILL_JOB_NAME, this::drainSpill, SPILL_INTERVAL, SPILL_INTERVAL);
+        }
+    }
+
+    /**
+     * Queues a message to be sent through a lane once its chat's slot has come
+     * <p>The caller never waits, the future completes with the message sent, or null if it could
+     * not be sent.</p>
+     *
+     * @param lane    SendLane the lane to send through
+     * @param chat    Chat the chat to send to
+     * @param message SendableMessage the message to send
+     *
+     * @return CompletableFuture the message sent
+     */
+    public CompletableFuture<Message> send(SendLane lane, Chat chat, SendableMessage message) {
+        CompletableFuture<Message> sent = new CompletableFuture<>();
+        long delay = rateLimiter.reserveChat(chat.getId()) - System.currentTimeMillis();
+        AtomicInteger count = unsent.get(lane);
+
+        count.incrementAndGet();
+        sent.whenComplete((result, error) -> {
+            synchronized (count) {
+                count.decrementAndGet();
+                count.notifyAll();
+            }
+        });
+
+        schedule(() -> lanes.get(lane).execute(() -> sent.complete(acquire(lane) ? sendNow(chat, message) : null)), delay);
+        return sent;
+    }
+
+    /**
+     * Waits for the messages queued on a lane to be sent
+     *
+     * @param lane    SendLane the lane to wait for
+     * @param timeout Long the most time to wait in milliseconds
+     *
+     * @return Boolean true if every message queued on the lane was sent in time
+     */
+    public boolean drain(SendLane lane, long timeout) {
+        AtomicInteger count = unsent.get(lane);
+        long deadline = System.currentTimeMillis() + timeout;
+
+        synchronized (count) {
+            while (count.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                try {
+                    count.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Queues a debug message
+     * <p>The chat's slot is only reserved once the message is sent, so a backlog of debug
+     * messages never holds back other messages to the same chat.</p>
+     *
+     * @param chat    Chat the chat to send to
+     * @param message SendableMessage the message to send
+     */
+    public void sendDebug(Chat chat, SendableMessage message) {
+        lanes.get(SendLane.DEBUG).execute(() -> {
+            if (sleepUntil(rateLimiter.reserveChat(chat.getId())) && acquire(SendLane.DEBUG)) {
+                sendNow(chat, message);
+            }
+        });
+    }
+
+    private Message sendNow(Chat chat, SendableMessage message) {
+        try {
+            return TelegramHook.getBot().sendMessage(chat, message);
+        } catch (RuntimeException e) {
+            LogHandler.log("Unable to send message to %s: %s", chat.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Waits for the lane's turn at the global rate limit, returns false once interrupted
+    private boolean acquire(SendLane lane) {
+        long retryAt;
+
+        while ((retryAt = rateLimiter.tryAcquire(lane)) != 0) {
+            if (!sleepUntil(retryAt)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs a task on the delivery timer after a delay
+     *
+     * @param runnable Runnable the task to run
+     * @param delay    Long the delay in milliseconds
+     */
+    public void schedule(Runnable runnable, long delay) {
+        if (timer.isShutdown()) {
+            return;
+        }
+
+        timer.schedule(runnable, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private boolean sleepUntil(long time) {
+        long delay = time - System.currentTimeMillis();
+
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Submits a new delivery, applying the saturation policy while the mailboxes are full
+     *
+     * @param task ForwardMessageTask the delivery
+     */
+    public void deliver(ForwardMessageTask task) {
+        if (admit(task)) {
+            enqueue(task);
+        }
+    }
+
+    /**
+     * Accepts a new delivery, taking a place in the mailboxes for it
+     * <p>BLOCK waits on the caller's thread until a delivery completes, SHED drops the delivery
+     * and SPILL writes it to disk until there is room. Once deliveries are spilled, later ones
+     * follow them through the spill to keep their order. A delivery which can not be written to
+     * disk is blocked on like BLOCK rather than lost.</p>
+     * <p>Deliveries which already arrived are dropped, new ones are added to the outbox. A delivery
+     * accepted without being added to a mailbox, such as an update collected for a digest, holds
+     * its place until it is released.</p>
+     *
+     * @param task ForwardMessageTask the delivery
+     *
+     * @return True if the delivery was accepted, false if it was dropped, shed or spilled
+     */
+    public boolean admit(ForwardMessageTask task) {
+        if (RedditLiveBot.instance.getDeliveryKeyHandler().isDelivered(task)) {
+            RedditLiveBot.instance.getOutboxHandler().ack(task);
+            return false;
+        }
+
+        if (task.getOutboxID() == 0) {
+            RedditLiveBot.instance.getOutboxHandler().add(task);
+        }
+
+        switch (saturationPolicy) {
+            case SHED: {
+                if (!tryReserve()) {
+                    rejectedTasks.incrementAndGet();
+                    RedditLiveBot.instance.getOutboxHandler().ack(task);
+                    Lang.sendDebug("Delivery queue full, delivery to %s shed.", task.getChatID());
+                    return false;
+                }
+
+                return true;
+            }
+            case SPILL: {
+                synchronized (spillLock) {
+                    if (spillPending == 0 && tryReserve()) {
+                        return true;
+                    }
+
+                    if (spill(task)) {
+                        return false;
+                    }
+                }
+
+                awaitCapacity();
+                return true;
+            }
+            default: {
+                awaitCapacity();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back the places held by deliveries which were accepted but never added to a mailbox
+     *
+     * @param count Integer the amount of deliveries
+     */
+    public void release(int count) {
+        synchronized (mailboxes) {
+            pending -= count;
+            mailboxes.notifyAll();
+        }
+    }
+
+    /**
+     * Adds a delivery to its chat's mailbox, scheduling it straight away if none is in progress
+     * <p>The saturation policy is not applied, this is for deliveries which restore or replace
+     * ones already accepted, such as outbox replays, digests and chat migrations, and may be
+     * called from the delivery threads without blocking them.</p>
+     * <p>Deliveries which already arrived are dropped, new ones are added to the outbox.</p>
+     *
+     * @param task ForwardMessageTask the delivery
+     */
+    public void redeliver(ForwardMessageTask task) {
+        if (RedditLiveBot.instance.getDeliveryKeyHandler().isDelivered(task)) {
+            RedditLiveBot.instance.getOutboxHandler().ack(task);
+            return;
+        }
+
+        if (task.getOutboxID() == 0) {
+            RedditLiveBot.instance.getOutboxHandler().add(task);
+        }
+
+        synchronized (mailboxes) {
+            pending++;
+        }
+
+        enqueue(task);
+    }
+
+    // Adds a delivery which already holds its place to its mailbox
+    private void enqueue(ForwardMessageTask task) {
+        synchronized (mailboxes) {
+            ArrayDeque<ForwardMessageTask> mailbox = mailboxes.computeIfAbsent(task.getChatID(), id -> new ArrayDeque<>());
+            mailbox.add(task);
+
+            if (mailbox.size() > 1) {
+                return;
+            }
+        }
+
+        dispatch(task);
+    }
+
+    private boolean isFull() {
+        synchronized (mailboxes) {
+            return pending >= capacity;
+        }
+    }
+
+    private boolean tryReserve() {
+        synchronized (mailboxes) {
+            if (pending >= capacity) {
+                return false;
+            }
+
+            pending++;
+            return true;
+        }
+    }
+
+    // Waits for a place in the mailboxes and takes it, once shut down or interrupted it is taken regardless
+    private void awaitCapacity() {
+        synchronized (mailboxes) {
+            while (pending >= capacity && !timer.isShutdown()) {
+                try {
+                    mailboxes.wait(SPILL_INTERVAL);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            pending++;
+        }
+    }
+
+    // Called with spillLock held
+    private boolean spill(ForwardMessageTask task) {
+        try {
+            Files.write(spillFile, Collections.singletonList(GSON.toJson(task)), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            spilledTasks.incrementAndGet();
+            spillPending++;
+            return true;
+        } catch (IOException e) {
+            Lang.sendDebug("Unable to spill delivery to disk: %s", e.getMessage());
+            return false;
+        }
+    }
+
+    // Moves as many spilled deliveries into the mailboxes as they have room for
+    private void drainSpill() {
+        synchronized (spillLock) {
+            if (spillPending == 0 || !Files.exists(spillFile)) {
+                return;
+            }
+
+            try {
+                List<String> lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+                List<String> remaining = new ArrayList<>();
+
+                for (String line : lines) {
+                    if (!remaining.isEmpty() || isFull()) {
+                        remaining.add(line);
+                        continue;
+                    }
+
+                    try {
+                        ForwardMessageTask task = GSON.fromJson(line, ForwardMessageTask.class);
+
+                        if (task != null) {
+                            redeliver(task);
+                        }
+                    } catch (JsonParseException e) {
+                        Lang.sendDebug("Discarded unreadable spilled delivery: %s", e.getMessage());
+                    }
+                }
+
+                spillPending = remaining.size();
+
+                if (remaining.isEmpty()) {
+                    Files.delete(spillFile);
+                } else if (remaining.size() != lines.size()) {
+                    Files.write(spillFile, remaining, StandardCharsets.UTF_8);
+                }
+            } catch (IOException e) {
+                Lang.sendDebug("Unable to read spilled deliveries: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Completes the delivery in progress for a chat and schedules the next one in its mailbox
+     *
+     * @param task ForwardMessageTask the delivery which completed
+     */
+    public void complete(ForwardMessageTask task) {
+        RedditLiveBot.instance.getOutboxHandler().ack(task);
+
+        ForwardMessageTask next;
+
+        synchronized (mailboxes) {
+            ArrayDeque<ForwardMessageTask> mailbox = mailboxes.get(task.getChatID());
+
+            if (mailbox == null || !mailbox.remove(task)) {
+                return;
+            }
+
+            pending--;
+            mailboxes.notifyAll();
+            checkSequence(task);
+
+            if (mailbox.isEmpty()) {
+                mailboxes.remove(task.getChatID());
+                return;
+            }
+
+            next = mailbox.peek();
+        }
+
+        dispatch(next);
+    }
+
+    /**
+     * Returns the amount of deliveries waiting in mailboxes or collected for digests, including those in progress
+     *
+     * @return Integer the amount of deliveries
+     */
+    public int getMailboxDepth() {
+        synchronized (mailboxes) {
+            return pending;
+        }
+    }
+
+    /**
+     * Returns the amount of deliveries shed since startup
+     *
+     * @return Long the amount of shed deliveries
+     */
+    public long getRejectedTasks() {
+        return rejectedTasks.get();
+    }
+
+    /**
+     * Returns the amount of deliveries spilled to disk since startup
+     *
+     * @return Long the amount of spilled deliveries
+     */
+    public long getSpilledTasks() {
+        return spilledTasks.get();
+    }
+
+    /**
+     * Forgets the sequences completed for a live thread which is no longer followed
+     *
+     * @param threadID String the live thread's ID
+     */
+    public void forgetThread(String threadID) {
+        synchronized (mailboxes) {
+            completedSequences.remove(threadID.toLowerCase());
+        }
+    }
+
+    /**
+     * Returns the amount of sequence gaps found since startup
+     *
+     * @return Long the amount of updates which were skipped for a chat
+     */
+    public long getSequenceGaps() {
+        return sequenceGaps.get();
+    }
+
+    /**
+     * Returns the amount of sequence reorders found since startup
+     *
+     * @return Long the amount of updates which completed for a chat after a newer one
+     */
+    public long getSequenceReorders() {
+        return sequenceReorders.get();
+    }
+
+    // Every update of a thread must complete once per chat and in stream order, the first one seen sets the baseline
+    private void checkSequence(ForwardMessageTask task) {
+        for (LiveThreadUpdate update : task.getUpdates()) {
+            Map<String, Long> chats = completedSequences.computeIfAbsent(update.getThreadID().toLowerCase(), id -> new HashMap<>());
+            Long last = chats.get(task.getChatID());
+
+            if (last != null && update.getSequence() <= last) {
+                sequenceReorders.incrementAndGet();
+                LogHandler.log("Update %d of %s completed for %s after update %d.",
+                        update.getSequence(), update.getThreadID(), task.getChatID(), last);
+                continue;
+            }
+
+            if (last != null && update.getSequence() > last + 1) {
+                sequenceGaps.addAndGet(update.getSequence() - last - 1);
+                LogHandler.log("Updates %d to %d of %s never completed for %s.",
+                        last + 1, update.getSequence() - 1, update.getThreadID(), task.getChatID());
+            }
+
+            chats.put(task.getChatID(), update.getSequence());
+        }
+    }
+
+    // Schedules the delivery at the head of a mailbox in the next free slot of its chat
+    private void dispatch(ForwardMessageTask task) {
+        // Once shut down the delivery stays in the outbox for the next startup
+        long delay = rateLimiter.reserveChat(task.getChatID()) - System.currentTimeMillis();
+
+        schedule(() -> lanes.get(SendLane.FANOUT).execute(() -> {
+            if (acquire(SendLane.FANOUT)) {
+                RedditLiveBot.instance.getThreadExecutionHandler().queue(task);
+            }
+        }), delay);
+    }
+
+    /**
+     * Reschedules a delivery refused by Telegram's flood control
+     * <p>The delivery keeps its place at the head of its chat's mailbox.</p>
+     *
+     * @param task       ForwardMessageTask the delivery
+     * @param retryAfter Long the time in milliseconds Telegram asked to wait
+     */
+    public void retry(ForwardMessageTask task, long retryAfter) {
+        rateLimiter.backoff(task.getChatID(), retryAfter);
+        dispatch(task);
+    }
+
+    /**
+     * Reschedules a delivery which failed transiently with exponential backoff and jitter
+     * <p>A delivery which has failed MAX_ATTEMPTS times is dead lettered instead.</p>
+     *
+     * @param task   ForwardMessageTask the delivery
+     * @param reason String why the delivery failed
+     */
+    public void retryWithBackoff(ForwardMessageTask task, String reason) {
+        int attempts = task.incrementAttempts();
+
+        if (attempts >= MAX_ATTEMPTS) {
+            deadLetter(task, "gave up after " + attempts + " attempts: " + reason);
+            return;
+        }
+
+        long backoff = Math.min(MAX_BACKOFF, BASE_BACKOFF << (attempts - 1));
+
+        // Half the backoff is fixed, the other half random, so failed fan-outs do not retry in lockstep
+        retry(task, backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+    }
+
+    /**
+     * Records a delivery which failed permanently in the dead letter log
+     *
+     * @param task   ForwardMessageTask the delivery
+     * @param reason String why the delivery failed
+     */
+    public synchronized void deadLetter(ForwardMessageTask task, String reason) {
+        deadLetters.incrementAndGet();
+        complete(task);
+
+        JsonObject entry = GSON.toJsonTree(task).getAsJsonObject();
+        entry.addProperty("reason", reason);
+        entry.addProperty("time", System.currentTimeMillis());
+
+        try {
+            Files.write(deadLetterFile, Collections.singletonList(GSON.toJson(entry)), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LogHandler.log("Unable to write to the dead letter log: %s", e.getMessage());
+        }
+
+        Lang.sendDebug("Delivery to %s failed: %s", task.getChatID(), reason);
+    }
+
+    /**
+     * Returns the amount of deliveries dead lettered since startup
+     *
+     * @return Long the amount of dead letters
+     */
+    public long getDeadLetters() {
+        return deadLetters.get();
+    }
+
+    /**
+     * Stops scheduling deliveries
+     * <p>Deliveries still waiting for their slot stay in the outbox and are replayed at the next startup,
+     * messages still queued on a lane are dropped, so channel posts should be drained first.</p>
+     */
+    public void shutdown() {
+        RedditLiveBot.instance.getSchedulerHandler().cancel(SPILL_JOB_NAME);
+        timer.shutdownNow();
+
+        for (ThreadPoolExecutor lane : lanes.values()) {
+            lane.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.handler;
+
+import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
+import me.stuntguy3000.java.redditlivebot.scheduler.LiveThreadUpdateStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps an append-only journal of the updates delivered for each followed live thread
+ * <p>Each delivered update is stored as a fixed size record of its ID, post time and sequence number in
+ * journal/&lt;thread&gt;.journal. Records are buffered and written with a single fsync per flush,
+ * once a journal grows past its threshold it is compacted down to the newest records.</p>
+ * <p>At startup only the tail of each journal is read back, so startup time does not depend on
+ * how long a thread has run.</p>
+ *
+ * @author stuntguy3000
+ */
+public class DeliveryJournalHandler {
+    private static final String JOB_NAME = "DeliveryJournal";
+    private static final long FLUSH_INTERVAL = 1000;
+    private static final int RECORD_SIZE = 32;
+    private static final int COMPACT_FACTOR = 4;
+    private final File directory = new File("journal");
+    private final Map<String, ThreadJournal> journals = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new DeliveryJournalHandler
+     */
+    public DeliveryJournalHandler() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            LogHandler.log("The delivery journal directory could not be created.");
+        }
+
+        RedditLiveBot.instance.getSchedulerHandler().schedule(JOB_NAME, this::flushAll, FLUSH_INTERVAL, FLUSH_INTERVAL);
+    }
+
+    /**
+     * Replays the newest records of a thread's journal into its update stream
+     *
+     * @param threadID String the live thread's ID
+     * @param stream   LiveThreadUpdateStream the stream to restore
+     */
+    public void replay(String threadID, LiveThreadUpdateStream stream) {
+        ThreadJournal journal = getJournal(threadID);
+
+        if (journal == null) {
+            return;
+        }
+
+        journal.setRetained(stream.getWindow());
+
+        try {
+            journal.replay(stream);
+        } catch (IOException e) {
+            LogHandler.log("The delivery journal of %s could not be replayed: %s", threadID, e.getMessage());
+        }
+    }
+
+    /**
+     * Records a delivered update, it is written to disk with the next flush
+     *
+     * @param update LiveThreadUpdate the delivered update
+     */
+    public void record(LiveThreadUpdate update) {
+        ThreadJournal journal = getJournal(update.getThreadID());
+
+        if (journal != null) {
+            journal.append(update.getData().getId(), update.getData().getCreated_utc(), update.getSequence());
+        }
+    }
+
+    /**
+     * Closes and deletes the journal of a thread which is no longer followed
+     *
+     * @param threadID String the live thread's ID
+     */
+    public void delete(String threadID) {
+        ThreadJournal journal = journals.remove(threadID.toLowerCase());
+
+        if (journal != null) {
+            journal.close();
+        }
+
+        try {
+            Files.deleteIfExists(getPath(threadID));
+        } catch (IOException e) {
+            LogHandler.log("The delivery journal of %s could not be deleted: %s", threadID, e.getMessage());
+        }
+    }
+
+    /**
+     * Flushes and closes every journal
+     */
+    public void shutdown() {
+        RedditLiveBot.instance.getSchedulerHandler().cancel(JOB_NAME);
+
+        for (ThreadJournal journal : journals.values()) {
+            journal.flush();
+            journal.close();
+        }
+
+        journals.clear();
+    }
+
+    private void flushAll() {
+        for (ThreadJournal journal : journals.values()) {
+            journal.flush();
+        }
+    }
+
+    private ThreadJournal getJournal(String threadID) {
+        return journals.computeIfAbsent(threadID.toLowerCase(), id -> {
+            try {
+                return new ThreadJournal(id, getPath(id));
+            } catch (IOException e) {
+                LogHandler.log("The delivery journal of %s could not be opened: %s", id, e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    private Path getPath(String threadID) {
+        return new File(directory, threadID.toLowerCase() + ".journal").toPath();
+    }
+
+    private static class ThreadJournal {
+        private final String threadID;
+        private final Path path;
+        private FileChannel channel;
+        private ByteBuffer pending = ByteBuffer.allocate(RECORD_SIZE * 64);
+        private int retained = 512;
+        private long records;
+
+        private ThreadJournal(String threadID, Path path) throws IOException {
+            this.threadID = threadID;
+            this.path = path;
+            this.channel = open(path);
+
+            // Drop a record torn by a crash mid-write
+            long size = channel.size();
+            if (size % RECORD_SIZE != 0) {
+                channel.truncate(size - size % RECORD_SIZE);
+            }
+
+            this.records = channel.size() / RECORD_SIZE;
+        }
+
+        private static FileChannel open(Path path) throws IOException {
+            return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private synchronized void setRetained(int retained) {
+            this.retained = retained;
+        }
+
+        private synchronized void replay(LiveThreadUpdateStream stream) throws IOException {
+            long count = Math.min(records, retained);
+            ByteBuffer buffer = ByteBuffer.allocate((int) count * RECORD_SIZE);
+
+            channel.read(buffer, (records - count) * RECORD_SIZE);
+            buffer.flip();
+
+            while (buffer.remaining() >= RECORD_SIZE) {
+                UUID id = new UUID(buffer.getLong(), buffer.getLong());
+                long posted = buffer.getLong();
+
+                stream.resume(id, posted, buffer.getLong());
+            }
+        }
+
+        private synchronized void append(UUID id, long posted, long sequence) {
+            if (pending.remaining() < RECORD_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+
+            pending.putLong(id.getMostSignificantBits());
+            pending.putLong(id.getLeastSignificantBits());
+            pending.putLong(posted);
+            pending.putLong(sequence);
+        }
+
+        private synchronized void flush() {
+            if (pending.position() == 0 || channel == null) {
+                return;
+            }
+
+            long start = records * RECORD_SIZE;
+            pending.flip();
+
+            try {
+                channel.position(start);
+                while (pending.hasRemaining()) {
+                    channel.write(pending);
+                }
+                channel.force(false);
+
+                records += pending.limit() / RECORD_SIZE;
+                pending.clear();
+            } catch (IOException e) {
+                // Keep the records buffered so the next flush rewrites them from the same offset
+                pending.position(pending.limit());
+                pending.limit(pending.capacity());
+                LogHandler.log("The delivery journal of %s could not be written: %s", threadID, e.getMessage());
+                return;
+            }
+
+            if (records > (long) retained * COMPACT_FACTOR) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    LogHandler.log("The delivery journal of %s could not be compacted: %s", threadID, e.getMessage());
+                }
+            }
+        }
+
+        // Rewrites the journal with only the newest records, then atomically replaces it
+        private void compact() throws IOException {
+            long keep = Math.min(records, retained);
+            ByteBuffer buffer = ByteBuffer.allocate((int) keep * RECORD_SIZE);
+            Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+
+            channel.read(buffer, (records - keep) * RECORD_SIZE);
+            buffer.flip();
+
+            try (FileChannel output = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    output.write(buffer);
+                }
+                output.force(false);
+            }
+
+            channel.close();
+
+            try {
+                Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                records = keep;
+            } finally {
+                channel = open(path);
+            }
+        }
+
+        private synchronized void close() {
+            if (channel == null) {
+                return;
+            }
+
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+
+            channel = null;
+        }
+    }
+}
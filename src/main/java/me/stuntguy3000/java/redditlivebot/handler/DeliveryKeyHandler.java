@@ -0,0 +1,356 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.handler;
+
+import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.scheduler.ForwardMessageTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Remembers which live thread updates each chat has already received
+ * <p>Every (update ID, chat ID) pair has a 64 bit delivery key, which is recorded once Telegram
+ * acknowledges the delivery. Deliveries whose keys are all recorded are skipped, so replaying the
+ * outbox or a followed thread's journal never sends an update to a chat twice.</p>
+ * <p>The keys are kept in outbox/delivered.idx, a hash index mapped into memory and forced to
+ * disk once a second. It starts sized for RETAINED_UPDATES keys per subscriber and is split into
+ * buckets of BUCKET_SIZE keys. Each key is stored with the outbox ID of the delivery which
+ * recorded it. A full bucket forgets its oldest key whose delivery the outbox has settled, so a
+ * key is never forgotten while its delivery can still be replayed. A bucket with no settled key
+ * doubles the index instead.</p>
+ *
+ * @author stuntguy3000
+ */
+public class DeliveryKeyHandler {
+    private static final String JOB_NAME = "DeliveryKeys";
+    private static final long FLUSH_INTERVAL = 1000;
+    private static final long MAGIC = 0x524c42444b455932L;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 16;
+    private static final int BUCKET_SIZE = 8;
+    private static final int RETAINED_UPDATES = 16;
+    private static final int MIN_BUCKETS = 1 << 12;
+    // Keeps the index within the 2 GB a single mapping can address
+    private static final int MAX_BUCKETS = 1 << 23;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private final Path indexPath = new File("outbox", "delivered.idx").toPath();
+    private FileChannel channel;
+    private MappedByteBuffer index;
+    private int buckets;
+    private boolean dirty = false;
+
+    /**
+     * Constructs a new DeliveryKeyHandler, opening the keys recorded by previous runs
+     */
+    public DeliveryKeyHandler() {
+        File directory = indexPath.toFile().getParentFile();
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            LogHandler.log("The outbox directory could not be created.");
+        }
+
+        int subscribers = RedditLiveBot.instance.getConfigHandler().getSubscriptions().getSubscriptions().size();
+        int wanted = getBucketCount((long) subscribers * RETAINED_UPDATES / BUCKET_SIZE);
+
+        try {
+            open(wanted);
+        } catch (IOException e) {
+            // Without the index deliveries are still made, they just may be repeated after a restart
+            LogHandler.log("The delivery key index could not be opened: %s", e.getMessage());
+        }
+
+        RedditLiveBot.instance.getSchedulerHandler().schedule(JOB_NAME, this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL);
+    }
+
+    // The smallest power of two of at least the given amount of buckets, within MIN_BUCKETS and MAX_BUCKETS
+    private static int getBucketCount(long wanted) {
+        int count = MIN_BUCKETS;
+
+        while (count < wanted && count < MAX_BUCKETS) {
+            count <<= 1;
+        }
+
+        return count;
+    }
+    /**
+     * Returns the delivery key of an update to a chat
+     *
+     * @param updateID UUID the update's ID
+     * @param chatID   String the chat's ID
+     *
+     * @return Long the delivery key, never 0
+     */
+    public static long getKey(UUID updateID, String chatID) {
+        long hash = FNV_OFFSET;
+
+        for (byte b : chatID.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+
+        hash = mix(hash ^ updateID.getMostSignificantBits());
+        hash = mix(hash ^ updateID.getLeastSignificantBits());
+
+        // 0 marks an empty slot
+        return hash == 0 ? 1 : hash;
+    }
+
+    // The 64 bit finalizer of MurmurHash3
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Checks whether a delivery has already been acknowledged by Telegram
+     * <p>Deliveries which carry no live thread updates are never considered delivered.</p>
+     *
+     * @param task ForwardMessageTask the delivery
+     *
+     * @return True if every update of the delivery has been delivered to its chat
+     */
+    public synchronized boolean isDelivered(ForwardMessageTask task) {
+        if (index == null || task.getUpdateIDs().isEmpty()) {
+            return false;
+        }
+
+        for (UUID updateID : task.getUpdateIDs()) {
+            if (!contains(getKey(updateID, task.getChatID()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Records the delivery keys of a delivery Telegram acknowledged
+     *
+     * @param task ForwardMessageTask the delivery
+     */
+    public synchronized void record(ForwardMessageTask task) {
+        if (index == null) {
+            return;
+        }
+
+        for (UUID updateID : task.getUpdateIDs()) {
+            insert(getKey(updateID, task.getChatID()), task.getOutboxID());
+        }
+    }
+
+    /**
+     * Forces the recorded keys to disk and closes the index
+     */
+    public synchronized void shutdown() {
+        RedditLiveBot.instance.getSchedulerHandler().cancel(JOB_NAME);
+        flush();
+
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+        }
+
+        channel = null;
+        index = null;
+    }
+
+    private synchronized void flush() {
+        if (index == null || !dirty) {
+            return;
+        }
+
+        index.force();
+        dirty = false;
+    }
+
+    // Opens the index, growing one from a previous run to at least the given amount of buckets
+    private void open(int wanted) throws IOException {
+        channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int stored = 0;
+
+        if (channel.size() >= HEADER_SIZE) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+            if (header.getLong(0) == MAGIC && channel.size() == getIndexSize(header.getInt(8))) {
+                stored = header.getInt(8);
+            }
+        }
+
+        if (stored == 0) {
+            if (channel.size() > 0) {
+                LogHandler.log("The delivery key index was not recognised and has been reset.");
+            }
+
+            channel.truncate(0);
+            buckets = wanted;
+            index = channel.map(FileChannel.MapMode.READ_WRITE, 0, getIndexSize(buckets));
+            index.putLong(0, MAGIC);
+            index.putInt(8, buckets);
+            dirty = true;
+            return;
+        }
+
+        buckets = stored;
+        index = channel.map(FileChannel.MapMode.READ_WRITE, 0, getIndexSize(buckets));
+
+        if (buckets < wanted) {
+            grow(wanted);
+        }
+    }
+
+    private static long getIndexSize(int buckets) {
+        return HEADER_SIZE + (long) buckets * BUCKET_SIZE * SLOT_SIZE;
+    }
+
+    private boolean contains(long key) {
+        int bucket = getBucket(key);
+
+        for (int slot = 0; slot < BUCKET_SIZE; slot++) {
+            long stored = index.getLong(bucket + slot * SLOT_SIZE);
+
+            if (stored == key) {
+                return true;
+            } else if (stored == 0) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    // Keys fill a bucket from its first slot, so the first slot always holds the oldest key
+    private void insert(long key, long outboxID) {
+        int bucket = getBucket(key);
+        int evict = -1;
+
+        for (int slot = 0; slot < BUCKET_SIZE; slot++) {
+            int offset = bucket + slot * SLOT_SIZE;
+            long stored = index.getLong(offset);
+
+            if (stored == key) {
+                index.putLong(offset + 8, outboxID);
+                dirty = true;
+                return;
+            } else if (stored == 0) {
+                index.putLong(offset, key);
+                index.putLong(offset + 8, outboxID);
+                dirty = true;
+                return;
+            } else if (evict < 0 && RedditLiveBot.instance.getOutboxHandler().isSettled(index.getLong(offset + 8))) {
+                evict = slot;
+            }
+        }
+
+        if (evict < 0 && buckets < MAX_BUCKETS) {
+            try {
+                grow(buckets << 1);
+                insert(key, outboxID);
+                return;
+            } catch (IOException e) {
+                LogHandler.log("The delivery key index could not be grown: %s", e.getMessage());
+            }
+        }
+
+        // Only reached with an unsettled oldest key once the index can not grow any further
+        if (evict < 0) {
+            evict = 0;
+        }
+
+        for (int slot = evict + 1; slot < BUCKET_SIZE; slot++) {
+            int offset = bucket + slot * SLOT_SIZE;
+
+            index.putLong(offset - SLOT_SIZE, index.getLong(offset));
+            index.putLong(offset - SLOT_SIZE + 8, index.getLong(offset + 8));
+        }
+
+        int last = bucket + (BUCKET_SIZE - 1) * SLOT_SIZE;
+        index.putLong(last, key);
+        index.putLong(last + 8, outboxID);
+        dirty = true;
+    }
+
+    // Rehashes every key into a new index of the given size, keeping the order of each bucket
+    private void grow(int size) throws IOException {
+        Path grown = indexPath.resolveSibling("delivered.idx.grow");
+
+        try (FileChannel output = FileChannel.open(grown, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer target = output.map(FileChannel.MapMode.READ_WRITE, 0, getIndexSize(size));
+            int[] filled = new int[size];
+
+            target.putLong(0, MAGIC);
+            target.putInt(8, size);
+
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                for (int slot = 0; slot < BUCKET_SIZE; slot++) {
+                    int offset = HEADER_SIZE + (bucket * BUCKET_SIZE + slot) * SLOT_SIZE;
+                    long key = index.getLong(offset);
+
+                    if (key == 0) {
+                        break;
+                    }
+
+                    int targetBucket = getBucketIndex(key, size);
+                    int targetOffset = HEADER_SIZE + (targetBucket * BUCKET_SIZE + filled[targetBucket]++) * SLOT_SIZE;
+
+                    target.putLong(targetOffset, key);
+                    target.putLong(targetOffset + 8, index.getLong(offset + 8));
+                }
+            }
+
+            target.force();
+        }
+
+        channel.close();
+        Files.move(grown, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        LogHandler.log("The delivery key index has grown from %d to %d buckets.", buckets, size);
+        channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buckets = size;
+        index = channel.map(FileChannel.MapMode.READ_WRITE, 0, getIndexSize(buckets));
+    }
+
+    private int getBucket(long key) {
+        return HEADER_SIZE + getBucketIndex(key, buckets) * BUCKET_SIZE * SLOT_SIZE;
+    }
+
+    private static int getBucketIndex(long key, int buckets) {
+        return (int) (key >>> 32) & (buckets - 1);
+    }
+}
@@ -41,8 +41,6 @@ import me.stuntguy3000.java.redditlivebot.object.Lang;
 import java.io.*;
 import java.net.URL;
 import java.util.LinkedList;
-import java.util.Timer;
-import java.util.TimerTask;
 
 /**
  * Handles the automatic updating of jar files from a Jenkins CI instance
@@ -61,7 +59,6 @@ public class JenkinsUpdateHandler {
     private UpdateInformation lastUpdate;
     private JenkinsUpdateThread updateThread;
     private long delay;
-    private Timer timer;
 
     /**
      * Initiate a new JenkinsUpdateHandler instance
@@ -81,7 +78,6 @@ public class JenkinsUpdateHandler {
 
         // Init Classes
         gson = new GsonBuilder().create();
-        timer = new Timer();
 
         // Load existing update information
         try {
@@ -132,7 +128,7 @@ public class JenkinsUpdateHandler {
         }
 
         updateThread = new JenkinsUpdateThread(this);
-        timer.schedule(updateThread, delay, delay);
+        RedditLiveBot.instance.getSchedulerHandler().schedule("JenkinsUpdater", updateThread, delay, delay);
     }
 
     /**
@@ -255,10 +251,9 @@ public class JenkinsUpdateHandler {
     /**
      * Represents the updater thread
      */
-    @EqualsAndHashCode(callSuper = true)
     @AllArgsConstructor
     @Data
-    private class JenkinsUpdateThread extends TimerTask {
+    private class JenkinsUpdateThread implements Runnable {
         private JenkinsUpdateHandler updateHandler;
 
         @Override
@@ -0,0 +1,435 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.handler;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
+import me.stuntguy3000.java.redditlivebot.scheduler.ForwardMessageTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every pending delivery on disk until it has been delivered or given up on
+ * <p>Deliveries are appended to outbox/outbox.log as JSON lines, the IDs of finished deliveries
+ * are appended to outbox/outbox.ack. Both files are written with a single fsync per flush. At
+ * startup every delivery without an ack is replayed, then the outbox is compacted.</p>
+ * <p>A live thread update is fanned out to every subscriber, so its payload is written once as
+ * its own record and the deliveries refer to it by key. The segment is compacted once it holds
+ * more than twice the bytes of the records still pending.</p>
+ * <p>Every compacted segment starts with the next outbox ID, so IDs keep rising across restarts
+ * even once every delivery has been acked and compacted away.</p>
+ *
+ * @author stuntguy3000
+ */
+public class OutboxHandler {
+    private static final String JOB_NAME = "Outbox";
+    private static final long FLUSH_INTERVAL = 1000;
+    private static final long COMPACT_SIZE = 4 * 1024 * 1024;
+    private static final Gson GSON = new Gson();
+    private final File directory = new File("outbox");
+    private final Path segmentPath = new File(directory, "outbox.log").toPath();
+    private final Path ackPath = new File(directory, "outbox.ack").toPath();
+    private final Map<Long, ForwardMessageTask> pending = new ConcurrentHashMap<>();
+    private final StringBuilder pendingRecords = new StringBuilder();
+    private final Set<Long> unwrittenAcks = new HashSet<>();
+    private final Map<Long, Integer> recordSizes = new HashMap<>();
+    private final Map<String, StoredUpdate> storedUpdates = new HashMap<>();
+    private long liveBytes = 0;
+    private ByteBuffer pendingAcks = ByteBuffer.allocate(8 * 256);
+    private FileChannel segment;
+    private FileChannel acks;
+    private long nextID = 1;
+
+    /**
+     * Constructs a new OutboxHandler, loading the deliveries left pending by the last run
+     */
+    public OutboxHandler() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            LogHandler.log("The outbox directory could not be created.");
+        }
+
+        try {
+            load();
+            compact();
+        } catch (IOException e) {
+            LogHandler.log("The outbox could not be loaded: %s", e.getMessage());
+        }
+
+        RedditLiveBot.instance.getSchedulerHandler().schedule(JOB_NAME, this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL);
+    }
+
+    /**
+     * Delivers every delivery left pending by the last run, in the order they were added
+     */
+    public void replay() {
+        List<ForwardMessageTask> tasks = new ArrayList<>(pending.values());
+
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        tasks.sort(Comparator.comparingLong(ForwardMessageTask::getOutboxID));
+        LogHandler.log("Replaying %d pending deliveries.", tasks.size());
+
+        for (ForwardMessageTask task : tasks) {
+            RedditLiveBot.instance.getDeliveryHandler().redeliver(task);
+        }
+    }
+
+    /**
+     * Adds a delivery to the outbox, it is written to disk with the next flush
+     *
+     * @param task ForwardMessageTask the delivery
+     */
+    public synchronized void add(ForwardMessageTask task) {
+        task.setOutboxID(nextID++);
+        pending.put(task.getOutboxID(), task);
+        pendingRecords.append(toRecords(task));
+    }
+
+    /**
+     * Marks a delivery as finished, whether it was delivered or given up on
+     *
+     * @param task ForwardMessageTask the delivery
+     */
+    public synchronized void ack(ForwardMessageTask task) {
+        ForwardMessageTask removed;
+
+        if (task.getOutboxID() == 0 || (removed = pending.remove(task.getOutboxID())) == null) {
+            return;
+        }
+
+        release(removed);
+
+        if (pendingAcks.remaining() < 8) {
+            ByteBuffer grown = ByteBuffer.allocate(pendingAcks.capacity() * 2);
+            pendingAcks.flip();
+            grown.put(pendingAcks);
+            pendingAcks = grown;
+        }
+
+        pendingAcks.putLong(task.getOutboxID());
+        unwrittenAcks.add(task.getOutboxID());
+    }
+
+    /**
+     * Checks whether a delivery is finished and its ack is on disk, so it is never replayed
+     *
+     * @param outboxID Long the delivery's outbox ID
+     *
+     * @return True if the delivery will not be replayed at the next startup
+     */
+    public synchronized boolean isSettled(long outboxID) {
+        return !pending.containsKey(outboxID) && !unwrittenAcks.contains(outboxID);
+    }
+
+    /**
+     * Returns the amount of deliveries not yet finished
+     *
+     * @return Integer the amount of pending deliveries
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Flushes and closes the outbox, pending deliveries are replayed at the next startup
+     */
+    public synchronized void shutdown() {
+        RedditLiveBot.instance.getSchedulerHandler().cancel(JOB_NAME);
+        flush();
+
+        try {
+            if (segment != null) {
+                segment.close();
+            }
+
+            if (acks != null) {
+                acks.close();
+            }
+        } catch (IOException ignored) {
+        }
+
+        segment = null;
+        acks = null;
+    }
+
+    // Records are always written before acks, so an ack never refers to a missing record
+    private synchronized void flush() {
+        if (segment == null || acks == null || (pendingRecords.length() == 0 && pendingAcks.position() == 0)) {
+            return;
+        }
+
+        try {
+            if (pendingRecords.length() > 0) {
+                ByteBuffer records = ByteBuffer.wrap(pendingRecords.toString().getBytes(StandardCharsets.UTF_8));
+
+                while (records.hasRemaining()) {
+                    segment.write(records);
+                }
+                segment.force(false);
+                pendingRecords.setLength(0);
+            }
+
+            if (pendingAcks.position() > 0) {
+                pendingAcks.flip();
+
+                while (pendingAcks.hasRemaining()) {
+                    acks.write(pendingAcks);
+                }
+                acks.force(false);
+                pendingAcks.clear();
+                unwrittenAcks.clear();
+            }
+
+            // Compacting rewrites every pending record, so it waits until at least half the segment is garbage
+            if (segment.size() > COMPACT_SIZE && segment.size() > 2 * liveBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            LogHandler.log("The outbox could not be written: %s", e.getMessage());
+        }
+    }
+
+    private void load() throws IOException {
+        Set<Long> acked = new HashSet<>();
+
+        if (Files.exists(ackPath)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(ackPath));
+
+            while (buffer.remaining() >= 8) {
+                acked.add(buffer.getLong());
+            }
+        }
+
+        if (!Files.exists(segmentPath)) {
+            return;
+        }
+
+        // An update's record is always written before the deliveries which refer to it
+        Map<String, JsonElement> updates = new HashMap<>();
+
+        for (String line : Files.readAllLines(segmentPath, StandardCharsets.UTF_8)) {
+            try {
+                JsonObject record = GSON.fromJson(line, JsonObject.class);
+
+                if (record == null) {
+                    continue;
+                }
+
+                if (record.has("nextID")) {
+                    nextID = Math.max(nextID, record.get("nextID").getAsLong());
+                    continue;
+                }
+
+                if (record.has("key")) {
+                    updates.put(record.get("key").getAsString(), record.get("update"));
+                    continue;
+                }
+
+                ForwardMessageTask task = GSON.fromJson(fromRecord(record, updates), ForwardMessageTask.class);
+
+                if (task == null || task.getOutboxID() == 0) {
+                    continue;
+                }
+
+                nextID = Math.max(nextID, task.getOutboxID() + 1);
+
+                if (!acked.contains(task.getOutboxID())) {
+                    pending.put(task.getOutboxID(), task);
+                }
+            } catch (JsonParseException | IllegalStateException e) {
+                // A record torn by a crash mid-write
+            }
+        }
+    }
+
+    // Writes the delivery's record, preceded by the records of any updates not yet in the segment
+    private String toRecords(ForwardMessageTask task) {
+        StringBuilder records = new StringBuilder();
+        JsonObject record = GSON.toJsonTree(task).getAsJsonObject();
+
+        record.remove("update");
+        record.remove("updates");
+
+        if (task.getUpdate() != null) {
+            record.addProperty("updateKey", getKey(task.getUpdate()));
+        }
+
+        if (task.getText() != null) {
+            JsonArray keys = new JsonArray();
+
+            for (LiveThreadUpdate update : task.getUpdates()) {
+                keys.add(GSON.toJsonTree(getKey(update)));
+            }
+
+            record.add("updateKeys", keys);
+        }
+
+        for (LiveThreadUpdate update : task.getUpdates()) {
+            String key = getKey(update);
+            StoredUpdate stored = storedUpdates.get(key);
+
+            if (stored == null) {
+                JsonObject updateRecord = new JsonObject();
+                updateRecord.addProperty("key", key);
+                updateRecord.add("update", GSON.toJsonTree(update));
+
+                String line = GSON.toJson(updateRecord) + '\n';
+                stored = new StoredUpdate(line.getBytes(StandardCharsets.UTF_8).length);
+                storedUpdates.put(key, stored);
+                liveBytes += stored.bytes;
+                records.append(line);
+            }
+
+            stored.references++;
+        }
+
+        String line = GSON.toJson(record) + '\n';
+        int size = line.getBytes(StandardCharsets.UTF_8).length;
+
+        recordSizes.put(task.getOutboxID(), size);
+        liveBytes += size;
+        return records.append(line).toString();
+    }
+
+    // Puts the payloads of the updates a delivery refers to back in its record
+    private JsonObject fromRecord(JsonObject record, Map<String, JsonElement> updates) {
+        if (record.has("updateKey")) {
+            JsonElement update = updates.get(record.remove("updateKey").getAsString());
+
+            if (update != null) {
+                record.add("update", update);
+            }
+        }
+
+        if (record.has("updateKeys")) {
+            JsonArray carried = new JsonArray();
+
+            for (JsonElement key : record.remove("updateKeys").getAsJsonArray()) {
+                JsonElement update = updates.get(key.getAsString());
+
+                if (update != null) {
+                    carried.add(update);
+                }
+            }
+
+            record.add("updates", carried);
+        }
+
+        return record;
+    }
+
+    // Forgets a finished delivery's records, an update's record is garbage once no pending delivery refers to it
+    private void release(ForwardMessageTask task) {
+        Integer size = recordSizes.remove(task.getOutboxID());
+
+        if (size != null) {
+            liveBytes -= size;
+        }
+
+        for (LiveThreadUpdate update : task.getUpdates()) {
+            String key = getKey(update);
+            StoredUpdate stored = storedUpdates.get(key);
+
+            if (stored != null && --stored.references == 0) {
+                storedUpdates.remove(key);
+                liveBytes -= stored.bytes;
+            }
+        }
+    }
+
+    // The sequence is part of the key, an update sequenced again after a restart may have a new one
+    private static String getKey(LiveThreadUpdate update) {
+        return update.getData().getId() + ":" + update.getSequence();
+    }
+
+    // Rewrites the segment with only the pending deliveries and starts a new ack index
+    private void compact() throws IOException {
+        List<ForwardMessageTask> tasks = new ArrayList<>(pending.values());
+        tasks.sort(Comparator.comparingLong(ForwardMessageTask::getOutboxID));
+
+        recordSizes.clear();
+        storedUpdates.clear();
+        liveBytes = 0;
+
+        JsonObject marker = new JsonObject();
+        marker.addProperty("nextID", nextID);
+
+        // The DeliveryKeyHandler tells settled deliveries apart by ID, so a reused ID would look pending again
+        StringBuilder records = new StringBuilder(GSON.toJson(marker)).append('\n');
+        for (ForwardMessageTask task : tasks) {
+            records.append(toRecords(task));
+        }
+
+        Path compacted = segmentPath.resolveSibling("outbox.log.compact");
+        ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+
+        try (FileChannel output = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+            output.force(false);
+        }
+
+        if (segment != null) {
+            segment.close();
+        }
+
+        if (acks != null) {
+            acks.close();
+        }
+
+        Files.move(compacted, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        acks = FileChannel.open(ackPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static class StoredUpdate {
+        private final int bytes;
+        private int references = 0;
+
+        private StoredUpdate(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
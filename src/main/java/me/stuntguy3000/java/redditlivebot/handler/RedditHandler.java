@@ -25,28 +25,43 @@
 package me.stuntguy3000.java.redditlivebot.handler;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 import lombok.Getter;
 import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.hook.RedditHook;
+import me.stuntguy3000.java.redditlivebot.hook.RequestCoalescer;
 import me.stuntguy3000.java.redditlivebot.hook.TelegramHook;
 import me.stuntguy3000.java.redditlivebot.object.Lang;
-import me.stuntguy3000.java.redditlivebot.object.reddit.LiveThread;
+import me.stuntguy3000.java.redditlivebot.object.reddit.LiveThreadAbout;
+import me.stuntguy3000.java.redditlivebot.object.reddit.LiveThreadEvents;
+import me.stuntguy3000.java.redditlivebot.object.reddit.RequestPriority;
 import me.stuntguy3000.java.redditlivebot.object.reddit.Subreddit;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadAboutData;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildren;
 import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildrenData;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdatePage;
 import me.stuntguy3000.java.redditlivebot.scheduler.LiveThreadBroadcasterTask;
 import me.stuntguy3000.java.redditlivebot.scheduler.SubredditScannerTask;
 
-import javax.xml.ws.http.HTTPException;
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
-import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 // @author Luke Anderson | stuntguy3000
 public class RedditHandler {
-    private static final String USER_AGENT = "me.stuntguy3000.java.redditlivebot (by /u/stuntguy3000)";
-    @Getter
-    private LiveThreadBroadcasterTask currentLiveThread;
+    private static final Gson GSON = new Gson();
+    private static final int POLL_PAGE_SIZE = 10;
+    private static final int CATCH_UP_PAGE_SIZE = 100;
+    private static final int MAX_CATCH_UP_PAGES = 10;
+    private static final long COALESCE_TTL = 2000;
+    private static final RequestCoalescer<String, List<LiveThreadChildrenData>> FIRST_PAGES = new RequestCoalescer<>(COALESCE_TTL);
+    private final Map<String, LiveThreadBroadcasterTask> followedLiveThreads = new ConcurrentHashMap<>();
     @Getter
     private SubredditScannerTask subredditScanner;
 
@@ -54,103 +69,347 @@ public class RedditHandler {
      * Constructs a new RedditHandler
      */
     public RedditHandler() {
-        String existingID = RedditLiveBot.instance.getConfigHandler().getBotSettings().getCurrentLiveFeed();
+        Map<String, Long> existingThreads = new HashMap<>(
+                RedditLiveBot.instance.getConfigHandler().getBotSettings().getFollowedLiveThreads());
+
+        Lang.sendDebug("Resuming %d followed thread(s).", existingThreads.size());
 
-        if (existingID == null) {
-            Lang.sendDebug("No existing thread.");
-            subredditScanner = new SubredditScannerTask();
-        } else {
-            Lang.sendDebug("Existing thread.");
-            followLiveThread(existingID, RedditLiveBot.instance.getConfigHandler().getBotSettings().getLastPost(), true);
+        for (Map.Entry<String, Long> existingThread : existingThreads.entrySet()) {
+            followLiveThread(existingThread.getKey(), existingThread.getValue(), true);
         }
+
+        subredditScanner = new SubredditScannerTask();
     }
 
     /**
-     * Get a LiveThread object from a reddit live ID
+     * Get the information of a live thread, including its websocket URL
      *
      * @param id String the Reddit Live thread ID
      *
-     * @return LiveThread the live thread instance.
+     * @return LiveThreadAbout the live thread's information, or null if the request was deferred
      */
-    public static LiveThread getLiveThread(String id) throws Exception {
-        String url = "https://www.reddit.com/live/" + id + ".json?limit=10";
+    public static LiveThreadAbout getLiveThreadAbout(String id) throws Exception {
+        String url = "https://www.reddit.com/live/" + id + "/about.json";
 
-        URL urlObject = new URL(url);
+        return RedditHook.get(url, RequestPriority.LIVE_THREAD, inputStream -> GSON.fromJson(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8), LiveThreadAbout.class));
+    }
 
-        try {
-            HttpURLConnection htmlConnection = (HttpURLConnection) urlObject.openConnection();
-            htmlConnection.setRequestProperty("User-Agent", USER_AGENT);
-            htmlConnection.setUseCaches(false);
-            htmlConnection.setConnectTimeout(2000);
-            htmlConnection.setReadTimeout(2000);
-            htmlConnection.connect();
-
-            if (htmlConnection.getResponseCode() == 200) {
-                BufferedReader in = new BufferedReader(new InputStreamReader(htmlConnection.getInputStream()));
-                String inputLine;
-                StringBuilder response = new StringBuilder();
-
-                while ((inputLine = in.readLine()) != null) {
-                    response.append(inputLine);
+    /**
+     * Get the information of many live threads in a single request
+     *
+     * @param ids      Collection the Reddit Live thread IDs
+     * @param priority RequestPriority the priority of the request
+     *
+     * @return Map the information of each thread keyed by lowercase thread ID, or null if the request was deferred
+     */
+    public static Map<String, LiveThreadAboutData> getLiveThreadAbouts(Collection<String> ids, RequestPriority priority) throws Exception {
+        List<String> names = new ArrayList<>();
+
+        for (String id : ids) {
+            names.add("LiveUpdateEvent_" + id);
+        }
+
+        String url = "https://www.reddit.com/api/live/by_id/" + Lang.stringJoin(names, "", ",") + ".json";
+        LiveThreadEvents events = RedditHook.get(url, priority, inputStream -> GSON.fromJson(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8), LiveThreadEvents.class));
+
+        if (events == null) {
+            return null;
+        }
+
+        Map<String, LiveThreadAboutData> abouts = new HashMap<>();
+
+        if (events.getData() != null && events.getData().getChildren() != null) {
+            for (LiveThreadAbout about : events.getData().getChildren()) {
+                if (about.getData() != null && about.getData().getId() != null) {
+                    abouts.put(about.getData().getId().toLowerCase(), about.getData());
                 }
-                in.close();
+            }
+        }
+
+        return abouts;
+    }
+
+    /**
+     * Get the newest update of a live thread
+     * <p>The update is read from the shared first page, so a check overlapping with the
+     * thread's poll costs no extra request.</p>
+     *
+     * @param id       String the Reddit Live thread ID
+     * @param priority RequestPriority the priority of the request
+     *
+     * @return LiveThreadChildrenData the newest update, or null if there is none or the request was deferred
+     */
+    public static LiveThreadChildrenData getLatestLiveThreadUpdate(String id, RequestPriority priority) throws Exception {
+        List<LiveThreadChildrenData> firstPage = getFirstPage(id, priority);
 
-                Gson gson = new Gson();
-                String threadPostingsJSON = response.toString();
+        return firstPage == null || firstPage.isEmpty() ? null : firstPage.get(0);
+    }
+
+    /**
+     * Get the newest page of a live thread's updates
+     * <p>Concurrent requests for the same thread share a single request, whose result is reused
+     * for a couple of seconds. Each caller filters the page by its own cursor.</p>
+     *
+     * @param id       String the Reddit Live thread ID
+     * @param priority RequestPriority the priority of the request
+     *
+     * @return List the POLL_PAGE_SIZE newest updates, newest first, or null if the request failed
+     */
+    private static List<LiveThreadChildrenData> getFirstPage(String id, RequestPriority priority) throws Exception {
+        return FIRST_PAGES.get(id.toLowerCase(), () -> {
+            LiveThreadUpdatePage page = getLiveThreadUpdatePage(id, null, null, POLL_PAGE_SIZE, null, -1, priority);
+
+            return page == null ? null : Collections.unmodifiableList(page.getUpdates());
+        });
+    }
 
-                return gson.fromJson(threadPostingsJSON, LiveThread.class);
-            } else {
-                throw new HTTPException(htmlConnection.getResponseCode());
+    /**
+     * Returns the updates of a page which are newer than a cursor
+     *
+     * @param updates  List the updates of the page, newest first
+     * @param lastSeen UUID the ID of the last seen update, or null
+     * @param lastPost Long the Unix time of the last post, or -1
+     *
+     * @return LiveThreadUpdatePage the updates before the cursor, newest first
+     */
+    private static LiveThreadUpdatePage filterPage(List<LiveThreadChildrenData> updates, UUID lastSeen, long lastPost) {
+        LiveThreadUpdatePage page = new LiveThreadUpdatePage();
+
+        for (LiveThreadChildrenData data : updates) {
+            if (data.getId().equals(lastSeen) || data.getCreated_utc() < lastPost) {
+                page.setCursorReached(true);
+                break;
+            }
+
+            page.getUpdates().add(data);
+        }
+
+        return page;
+    }
+
+    /**
+     * Get the updates of a live thread which are newer than a cursor
+     * <p>The first page is shared with concurrent readers of the same thread and filtered down to
+     * the updates before the first one which is the last seen update or was posted before
+     * lastPost. Catch-up pages are streamed straight from the response and reading stops at that
+     * update. Updates posted in the same second as lastPost are returned, the caller's dedupe
+     * window filters those already delivered.</p>
+     * <p>If the cursor is not on the first page, older pages are fetched with the listing's after
+     * cursor until it is reached, so a burst of updates or downtime does not lose any updates. A
+     * gap larger than MAX_CATCH_UP_PAGES is caught up oldest part first: only the updates directly
+     * after lastSeen are returned, and the next poll continues from the newest of them.</p>
+     * <p>Updates are only returned if they reach back to the cursor, if any page can not be
+     * fetched null is returned so the whole poll is retried with the cursor unchanged.</p>
+     *
+     * @param id       String the Reddit Live thread ID
+     * @param lastSeen UUID the ID of the last seen update, or null
+     * @param lastPost Long the Unix time of the last post, or -1
+     *
+     * @return List the new updates, newest first, or null if they could not all be fetched
+     */
+    public static List<LiveThreadChildrenData> getLiveThreadUpdates(String id, UUID lastSeen, long lastPost) throws Exception {
+        List<LiveThreadChildrenData> firstPage = getFirstPage(id, RequestPriority.LIVE_THREAD);
+
+        if (firstPage == null) {
+            return null;
+        }
+
+        LiveThreadUpdatePage page = filterPage(firstPage, lastSeen, lastPost);
+
+        List<LiveThreadChildrenData> updates = page.getUpdates();
+
+        // Without a cursor there is no gap to catch up on
+        if (lastSeen == null && lastPost == -1) {
+            return updates;
+        }
+
+        int pages = 0;
+        while (!page.isCursorReached() && page.getUpdates().size() == (pages == 0 ? POLL_PAGE_SIZE : CATCH_UP_PAGE_SIZE)) {
+            // Without an update ID to page forward from, the gap can only be closed from the newest end
+            if (++pages > MAX_CATCH_UP_PAGES && lastSeen != null) {
+                Lang.sendDebug("Catch up of %s exceeds %d pages, continuing from the oldest update.", id, MAX_CATCH_UP_PAGES);
+                return getLiveThreadUpdatesAfter(id, lastSeen, lastPost);
+            }
+
+            String after = "LiveUpdate_" + updates.get(updates.size() - 1).getId();
+            page = getLiveThreadUpdatePage(id, after, null, CATCH_UP_PAGE_SIZE, lastSeen, lastPost, RequestPriority.LIVE_THREAD);
+
+            if (page == null) {
+                return null;
             }
+
+            updates.addAll(page.getUpdates());
+        }
+
+        if (pages > 0) {
+            Lang.sendDebug("Caught up on %d updates from %s over %d extra page(s).", updates.size(), id, pages);
+        }
+
+        return updates;
+    }
+
+    /**
+     * Get the updates of a live thread which directly follow the last seen update
+     *
+     * @param id       String the Reddit Live thread ID
+     * @param lastSeen UUID the ID of the last seen update
+     * @param lastPost Long the Unix time of the last post, or -1
+     *
+     * @return List the CATCH_UP_PAGE_SIZE updates after lastSeen, newest first, or null if the request failed
+     */
+    private static List<LiveThreadChildrenData> getLiveThreadUpdatesAfter(String id, UUID lastSeen, long lastPost) throws Exception {
+        LiveThreadUpdatePage page = getLiveThreadUpdatePage(id, null, "LiveUpdate_" + lastSeen, CATCH_UP_PAGE_SIZE,
+                lastSeen, lastPost, RequestPriority.LIVE_THREAD);
+
+        return page == null ? null : page.getUpdates();
+    }
+
+    /**
+     * Get a single page of updates from a live thread which are newer than a cursor
+     *
+     * @param id       String the Reddit Live thread ID
+     * @param after    String the fullname of the update to page after, or null for the newest page
+     * @param before   String the fullname of the update to page before, or null
+     * @param limit    Integer the page size
+     * @param lastSeen UUID the ID of the last seen update, or null
+     * @param lastPost Long the Unix time of the last post, or -1
+     * @param priority RequestPriority the priority of the request
+     *
+     * @return LiveThreadUpdatePage the page read, or null if the request was deferred
+     */
+    private static LiveThreadUpdatePage getLiveThreadUpdatePage(String id, String after, String before, int limit, UUID lastSeen,
+                                                                long lastPost, RequestPriority priority) throws Exception {
+        String url = "https://www.reddit.com/live/" + id + ".json?limit=" + limit
+                + (after == null ? "" : "&after=" + after) + (before == null ? "" : "&before=" + before);
+
+        try {
+            return RedditHook.get(url, priority, inputStream -> readLiveThreadUpdates(
+                    new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)), lastSeen, lastPost));
         } catch (SocketTimeoutException ex) {
             System.out.println("[ERROR] SocketTimeoutException");
             return null;
         }
     }
 
+    /**
+     * Reads updates from a live thread listing until the cursor is reached
+     *
+     * @param reader   JsonReader the reader positioned at the start of the listing
+     * @param lastSeen UUID the ID of the last seen update, or null
+     * @param lastPost Long the Unix time of the last post, or -1
+     *
+     * @return LiveThreadUpdatePage the updates read, newest first
+     */
+    private static LiveThreadUpdatePage readLiveThreadUpdates(JsonReader reader, UUID lastSeen, long lastPost) throws IOException {
+        LiveThreadUpdatePage page = new LiveThreadUpdatePage();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("data")) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("children")) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    LiveThreadChildren child = GSON.fromJson(reader, LiveThreadChildren.class);
+                    LiveThreadChildrenData data = child.getData();
+
+                    if (data == null) {
+                        continue;
+                    }
+
+                    if (data.getId().equals(lastSeen) || data.getCreated_utc() < lastPost) {
+                        page.setCursorReached(true);
+                        return page;
+                    }
+
+                    page.getUpdates().add(data);
+                }
+
+                return page;
+            }
+
+            return page;
+        }
+
+        return page;
+    }
+
     /**
      * Returns a Subreddit content based upon the ID
      *
      * @param id String the subreddit's name
+     * @param limit Integer the amount of posts to fetch
      *
-     * @return Subreddit the associated subreddit
+     * @return Subreddit the associated subreddit, or null if the request was deferred
      */
-    public static Subreddit getSubreddit(String id) throws Exception {
-        String url = "https://www.reddit.com/r/" + id + "/new.json?limit=1";
+    public static Subreddit getSubreddit(String id, int limit) throws Exception {
+        String url = "https://www.reddit.com/r/" + id + "/new.json?limit=" + limit;
 
-        URL urlObject = new URL(url);
+        return RedditHook.get(url, RequestPriority.SCANNER, inputStream -> GSON.fromJson(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8), Subreddit.class));
+    }
 
-        HttpURLConnection htmlConnection = (HttpURLConnection) urlObject.openConnection();
-        htmlConnection.setRequestProperty("User-Agent", USER_AGENT);
-        htmlConnection.setUseCaches(false);
-        htmlConnection.setConnectTimeout(2000);
-        htmlConnection.setReadTimeout(2000);
-        htmlConnection.connect();
+    /**
+     * Returns the newest posts matching a Reddit search query
+     *
+     * @param query String the search query
+     * @param limit Integer the amount of posts to fetch
+     *
+     * @return Subreddit the matching posts, or null if the request was deferred
+     */
+    public static Subreddit searchPosts(String query, int limit) throws Exception {
+        String url = "https://www.reddit.com/search.json?sort=new&limit=" + limit + "&q=" + URLEncoder.encode(query, "UTF-8");
 
-        if (htmlConnection.getResponseCode() == 200) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(htmlConnection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
+        return RedditHook.get(url, RequestPriority.SCANNER, inputStream -> GSON.fromJson(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8), Subreddit.class));
+    }
 
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
+    /**
+     * Returns all followed live threads
+     *
+     * @return Collection the broadcaster of each followed thread
+     */
+    public Collection<LiveThreadBroadcasterTask> getFollowedLiveThreads() {
+        return followedLiveThreads.values();
+    }
 
-            Gson gson = new Gson();
-            String threadPostingsJSON = response.toString();
+    /**
+     * Returns a followed live thread
+     *
+     * @param id String the live thread's ID
+     *
+     * @return LiveThreadBroadcasterTask the thread's broadcaster, or null if not followed
+     */
+    public LiveThreadBroadcasterTask getFollowedLiveThread(String id) {
+        return followedLiveThreads.get(id.toLowerCase());
+    }
 
-            return gson.fromJson(threadPostingsJSON, Subreddit.class);
-        } else {
-            throw new HTTPException(htmlConnection.getResponseCode());
-        }
+    /**
+     * Returns if a live thread is followed
+     *
+     * @param id String the live thread's ID
+     *
+     * @return true if the thread is followed
+     */
+    public boolean isFollowing(String id) {
+        return followedLiveThreads.containsKey(id.toLowerCase());
     }
 
     /**
      * Follow a live thread with no last post
      *
      * @param id String the live thread's ID
-     * @param title String the title of the live thread
      * @param silent Boolean true to follow the live thread silently (suppress any announcement messages)
      */
     public void followLiveThread(String id, boolean silent) {
@@ -159,27 +418,26 @@ public class RedditHandler {
 
     /**
      * Follow a live thread
+     * <p>Threads which are already followed are ignored</p>
      *
      * @param id String the live thread's ID
-     * @param title String the title of the live thread
      * @param lastPost Long the Unix time of the last post
      * @param silent Boolean true to follow the live thread silently (suppress any announcement messages)
      */
     public void followLiveThread(String id, long lastPost, boolean silent) {
-        if (currentLiveThread != null) {
-            currentLiveThread.cancel();
-            currentLiveThread = null;
-        }
+        id = id.toLowerCase();
 
-        if (subredditScanner != null) {
-            subredditScanner.cancel();
-            subredditScanner = null;
+        if (followedLiveThreads.containsKey(id)) {
+            return;
         }
 
-        currentLiveThread = new LiveThreadBroadcasterTask(id, lastPost);
+        LiveThreadBroadcasterTask liveThread = new LiveThreadBroadcasterTask(id, lastPost);
+        followedLiveThreads.put(id, liveThread);
+        RedditLiveBot.instance.getSchedulerHandler().schedule(
+                liveThread.getJobName(), liveThread, 0, liveThread.getPollInterval().getNextDelay());
 
         RedditLiveBot.instance.getConfigHandler().addKnownFeed(id);
-        RedditLiveBot.instance.getConfigHandler().setCurrentFeed(id);
+        RedditLiveBot.instance.getConfigHandler().setFollowedFeed(id, lastPost);
 
         if (!silent) {
             Lang.send(TelegramHook.getRedditLiveChat(), Lang.LIVE_THREAD_START, id);
@@ -189,38 +447,51 @@ public class RedditHandler {
     /**
      * Stop following a live thread
      *
+     * @param id String the live thread's ID
      * @param silent Boolean true to suppress any messages
      */
-    public void unfollowLiveThread(boolean silent) {
-        if (currentLiveThread != null) {
-            currentLiveThread.cancel();
-            currentLiveThread = null;
-        }
+    public void unfollowLiveThread(String id, boolean silent) {
+        LiveThreadBroadcasterTask liveThread = followedLiveThreads.remove(id.toLowerCase());
 
-        if (subredditScanner != null) {
-            subredditScanner.cancel();
-            subredditScanner = null;
+        if (liveThread == null) {
+            return;
         }
 
-        subredditScanner = new SubredditScannerTask();
-        RedditLiveBot.instance.getConfigHandler().setCurrentFeed(null);
+        liveThread.cancel();
+        RedditLiveBot.instance.getConfigHandler().removeFollowedFeed(id);
+        RedditLiveBot.instance.getDeliveryJournalHandler().delete(id);
+        RedditLiveBot.instance.getDeliveryHandler().forgetThread(id);
 
         if (!silent) {
-            Lang.send(TelegramHook.getRedditLiveChat(), Lang.LIVE_THREAD_STOP);
+            Lang.send(TelegramHook.getRedditLiveChat(), Lang.LIVE_THREAD_STOP, liveThread.getThreadID());
+        }
+    }
+
+    /**
+     * Stop following every live thread
+     *
+     * @param silent Boolean true to suppress any messages
+     */
+    public void unfollowAllLiveThreads(boolean silent) {
+        for (String id : new ArrayList<>(followedLiveThreads.keySet())) {
+            unfollowLiveThread(id, silent);
         }
     }
 
     /**
      * Post an update from a Live thread
+     * <p>The update is forwarded to subscribers once the channel post has been sent.</p>
      *
-     * @param data LiveThreadChildrenData the update information
-     * @param threadID String the live thread's ID
+     * @param update LiveThreadUpdate the sequenced update
+     *
+     * @return CompletableFuture completed once the update has been posted and forwarded
      */
-    public void postLiveThreadUpdate(LiveThreadChildrenData data, String threadID) {
-        String author = data.getAuthor();
-        String body = data.getBody();
-        RedditLiveBot.instance.getSubscriptionHandler().forwardMessage(Lang.send(TelegramHook.getRedditLiveChat(),
-                Lang.LIVE_THREAD_UPDATE, threadID, author, body));
+    public CompletableFuture<Void> postLiveThreadUpdate(LiveThreadUpdate update) {
+        String author = update.getData().getAuthor();
+        String body = update.getData().getBody();
+
+        return RedditLiveBot.instance.getSubscriptionHandler().forwardWhenSent(
+                Lang.send(TelegramHook.getRedditLiveChat(), Lang.LIVE_THREAD_UPDATE, update.getThreadID(), author, body), update);
     }
 }
     
\ No newline at end of file
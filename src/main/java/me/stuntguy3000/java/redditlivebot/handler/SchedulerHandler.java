@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.handler;
+
+import me.stuntguy3000.java.redditlivebot.scheduler.ScheduledJob;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every repeating job of the bot on a small, shared pool of threads
+ * <p>Jobs are registered by name, replacing any existing job of the same name</p>
+ *
+ * @author stuntguy3000
+ */
+public class SchedulerHandler {
+    private static final int THREAD_COUNT = 4;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, ScheduledJob> jobs = new ConcurrentHashMap<>();
+
+    public SchedulerHandler() {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        executor = new ScheduledThreadPoolExecutor(THREAD_COUNT,
+                runnable -> new Thread(runnable, "Scheduler-" + threadNumber.incrementAndGet()));
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedule a repeating job
+     *
+     * @param name         String the unique name of the job
+     * @param task         Runnable the task to run
+     * @param initialDelay Long the delay in milliseconds before the first run
+     * @param period       Long the delay in milliseconds between the end of one run and the next
+     *
+     * @return ScheduledJob the scheduled job
+     */
+    public ScheduledJob schedule(String name, Runnable task, long initialDelay, long period) {
+        cancel(name);
+
+        ScheduledJob job = new ScheduledJob(name, task, period, executor);
+        jobs.put(name, job);
+        job.schedule(initialDelay);
+
+        return job;
+    }
+
+    /**
+     * Change the period of a running job
+     *
+     * @param name   String the name of the job
+     * @param period Long the new period in milliseconds
+     */
+    public void reschedule(String name, long period) {
+        ScheduledJob job = jobs.get(name);
+
+        if (job != null) {
+            job.reschedule(period);
+        }
+    }
+
+    /**
+     * Cancel a job
+     *
+     * @param name String the name of the job
+     */
+    public void cancel(String name) {
+        ScheduledJob job = jobs.remove(name);
+
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Returns a job by name
+     *
+     * @param name String the name of the job
+     *
+     * @return ScheduledJob the job, or null if not scheduled
+     */
+    public ScheduledJob getJob(String name) {
+        return jobs.get(name);
+    }
+
+    /**
+     * Returns all scheduled jobs
+     *
+     * @return Collection all scheduled jobs
+     */
+    public Collection<ScheduledJob> getJobs() {
+        return jobs.values();
+    }
+
+    /**
+     * Returns the amount of scheduled jobs
+     *
+     * @return Integer the amount of jobs
+     */
+    public int getJobCount() {
+        return jobs.size();
+    }
+
+    /**
+     * Stop all jobs
+     */
+    public void shutdown() {
+        for (String name : jobs.keySet()) {
+            cancel(name);
+        }
+
+        executor.shutdown();
+    }
+}
@@ -25,13 +25,24 @@
 package me.stuntguy3000.java.redditlivebot.handler;
 
 import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.hook.TelegramHook;
+import me.stuntguy3000.java.redditlivebot.object.Lang;
 import me.stuntguy3000.java.redditlivebot.object.config.Subscriber;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
 import me.stuntguy3000.java.redditlivebot.scheduler.ForwardMessageTask;
 import pro.zackpollard.telegrambot.api.chat.Chat;
 import pro.zackpollard.telegrambot.api.chat.message.Message;
 import pro.zackpollard.telegrambot.api.user.User;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles Subscriptions
@@ -39,6 +50,14 @@ import java.util.ArrayList;
  * @author stunt3000
  */
 public class SubscriptionHandler {
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+    private final Set<String> subscribedIDs = ConcurrentHashMap.newKeySet();
+    private final Map<String, List<ForwardMessageTask>> digests = new ConcurrentHashMap<>();
+    private final ExecutorService fanout = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
     private RedditLiveBot plugin;
 
     /**
@@ -46,6 +65,10 @@ public class SubscriptionHandler {
      */
     public SubscriptionHandler() {
         this.plugin = RedditLiveBot.instance;
+
+        for (Subscriber subscriber : getSubscriptions()) {
+            subscribedIDs.add(subscriber.getUserID());
+        }
     }
 
     /**
@@ -74,9 +97,10 @@ public class SubscriptionHandler {
      * @param chat Chat the chat to be subscribed
      */
     public void subscribeChat(Chat chat) {
+        TelegramHook.cacheChat(chat);
+
         if (!isSubscribed(chat)) {
-            plugin.getConfigHandler().getSubscriptions().getSubscriptions().add(new Subscriber(chat.getId(), chat.getName()));
-            plugin.getConfigHandler().saveSubscriptions();
+            addSubscriber(new Subscriber(chat.getId(), chat.getName()));
         }
     }
 
@@ -87,25 +111,57 @@ public class SubscriptionHandler {
      */
     public void subscribeUser(User user) {
         if (!isSubscribed(String.valueOf(user.getId()))) {
-            plugin.getConfigHandler().getSubscriptions().getSubscriptions().add(new Subscriber(String.valueOf(user.getId()), user.getUsername()));
-            plugin.getConfigHandler().saveSubscriptions();
+            addSubscriber(new Subscriber(String.valueOf(user.getId()), user.getUsername()));
         }
     }
 
+    private synchronized void addSubscriber(Subscriber subscriber) {
+        getSubscriptions().add(subscriber);
+        subscribedIDs.add(subscriber.getUserID());
+        plugin.getConfigHandler().saveSubscriptions();
+    }
+
     /**
      * Returns if a user ID is subscribed
      *
      * @param id String the ID to be checked
      * @return true if id is subscribed
      */
-    private boolean isSubscribed(String id) {
-        for (Subscriber subscriber : getSubscriptions()) {
-            if (subscriber.getUserID().equals(id)) {
-                return true;
-            }
-        }
+    public boolean isSubscribed(String id) {
+        return subscribedIDs.contains(id);
+    }
+
+    /**
+     * Forwards a channel post to every subscriber once it has been sent
+     * <p>The fan-out runs on its own thread, so while deliveries are saturated it is that thread
+     * which waits and not the SendLane the post went through. Posts are forwarded one at a time,
+     * in the order they were sent.</p>
+     *
+     * @param sent   CompletableFuture the post being sent
+     * @param update LiveThreadUpdate the sequenced update the post was sent for, or null
+     *
+     * @return CompletableFuture completed once every subscriber's delivery has been submitted
+     */
+    public CompletableFuture<Void> forwardWhenSent(CompletableFuture<Message> sent, LiveThreadUpdate update) {
+        return sent.thenAcceptAsync(message -> forwardMessage(message, update), fanout);
+    }
+
+    /**
+     * Stops accepting posts to forward and waits for those already sent to be fanned out
+     *
+     * @param timeout Long the most time to wait in milliseconds
+     *
+     * @return Boolean true if every post was fanned out in time
+     */
+    public boolean drain(long timeout) {
+        fanout.shutdown();
 
-        return false;
+        try {
+            return fanout.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     /**
@@ -115,26 +171,168 @@ public class SubscriptionHandler {
      * @param message Message the message to forward
      */
     public void forwardMessage(Message message) {
-        ThreadExecutionHandler threadExecutionHandler = RedditLiveBot.instance.getThreadExecutionHandler();
+        forwardMessage(message, null);
+    }
 
-        for (Subscriber subscriber : getSubscriptions()) {
-            threadExecutionHandler.queue(new ForwardMessageTask(message, subscriber.getUserID()));
+    /**
+     * Forward the Message of a live thread update to a subscriber
+     * <p>@RedditLiveBot must be in the chat</p>
+     *
+     * <p>With a digestWindow set in config.json, live thread updates are collected per chat and
+     * delivered together once the window has passed and the chat's send budget allows it.</p>
+     *
+     * @param message Message the message to forward
+     * @param update  LiveThreadUpdate the sequenced update the message was posted for, or null
+     */
+    public void forwardMessage(Message message, LiveThreadUpdate update) {
+        if (message == null) {
+            return;
+        }
+
+        DeliveryHandler deliveryHandler = RedditLiveBot.instance.getDeliveryHandler();
+        long digestWindow = TimeUnit.SECONDS.toMillis(plugin.getConfigHandler().getBotSettings().getDigestWindow());
+
+        for (String chatID : subscribedIDs) {
+            ForwardMessageTask task = new ForwardMessageTask(message, chatID, update);
+
+            if (update != null && digestWindow > 0) {
+                addToDigest(task, digestWindow);
+            } else {
+                deliveryHandler.deliver(task);
+            }
+        }
+    }
+
+    private void addToDigest(ForwardMessageTask task, long digestWindow) {
+        boolean[] started = {false};
+
+        // Collected updates hold their place in the delivery queue and are kept in the outbox, so a
+        // restart replays them individually. A spilled update is delivered on its own once drained.
+        if (!RedditLiveBot.instance.getDeliveryHandler().admit(task)) {
+            return;
+        }
+
+        digests.compute(task.getChatID(), (chatID, pending) -> {
+            if (pending == null) {
+                pending = new ArrayList<>();
+                started[0] = true;
+            }
+
+            pending.add(task);
+            return pending;
+        });
+
+        if (started[0]) {
+            RedditLiveBot.instance.getDeliveryHandler().schedule(() -> flushDigest(task.getChatID()), digestWindow);
         }
     }
 
+    /**
+     * Delivers the updates collected for a chat
+     * <p>While the chat's send budget is exhausted, updates keep being collected until it frees up.
+     * A single update is forwarded as usual, several are combined into one message.</p>
+     *
+     * @param chatID String the chat's ID
+     */
+    private void flushDigest(String chatID) {
+        DeliveryHandler deliveryHandler = RedditLiveBot.instance.getDeliveryHandler();
+        long wait = deliveryHandler.getRateLimiter().getChatSlot(chatID) - System.currentTimeMillis();
+
+        if (wait > 0) {
+            deliveryHandler.schedule(() -> flushDigest(chatID), wait);
+            return;
+        }
+
+        List<ForwardMessageTask> pending = digests.remove(chatID);
+
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+
+        // The messages sent take their own places, then those held by the collected updates are released
+        if (pending.size() == 1) {
+            deliveryHandler.redeliver(pending.get(0));
+        } else {
+            for (ForwardMessageTask digest : buildDigest(chatID, pending)) {
+                deliveryHandler.redeliver(digest);
+            }
+
+            for (ForwardMessageTask task : pending) {
+                RedditLiveBot.instance.getOutboxHandler().ack(task);
+            }
+        }
+
+        deliveryHandler.release(pending.size());
+    }
+
+    // Each message carries the updates it contains, so it is only skipped once all have arrived
+    private List<ForwardMessageTask> buildDigest(String chatID, List<ForwardMessageTask> pending) {
+        List<ForwardMessageTask> messages = new ArrayList<>();
+        List<LiveThreadUpdate> updates = new ArrayList<>();
+        StringBuilder text = new StringBuilder(Lang.format(Lang.LIVE_THREAD_DIGEST, pending.size()));
+
+        for (ForwardMessageTask task : pending) {
+            LiveThreadUpdate update = task.getUpdate();
+            String entry = "\n\n" + Lang.format(Lang.LIVE_THREAD_UPDATE,
+                    update.getThreadID(), update.getData().getAuthor(), update.getData().getBody());
+
+            // Split digests longer than Telegram allows, updates are never split
+            if (!updates.isEmpty() && text.length() + entry.length() > MAX_MESSAGE_LENGTH) {
+                messages.add(new ForwardMessageTask(chatID, text.toString(), updates));
+                updates = new ArrayList<>();
+                text.setLength(0);
+                entry = entry.trim();
+            }
+
+            text.append(entry);
+            updates.addAll(task.getUpdates());
+        }
+
+        messages.add(new ForwardMessageTask(chatID, text.toString(), updates));
+        return messages;
+    }
+
     /**
      * Unsubscribe a chat ID
      *
      * @param id String the chat ID to unsubscribe
      */
-    public void unsubscribeChat(String id) {
-        for (Subscriber subscriber : new ArrayList<>(getSubscriptions())) {
-            if (subscriber.getUserID().equals(id)) {
-                getSubscriptions().remove(subscriber);
+    public synchronized void unsubscribeChat(String id) {
+        getSubscriptions().removeIf(subscriber -> subscriber.getUserID().equals(id));
+        subscribedIDs.remove(id);
+        TelegramHook.invalidateChat(id);
+
+        plugin.getConfigHandler().saveSubscriptions();
+    }
+
+    /**
+     * Moves a subscription to the supergroup a group was migrated to
+     * <p>If the supergroup is already subscribed, the old subscription is dropped instead.</p>
+     *
+     * @param id    String the group's old chat ID
+     * @param newID String the supergroup's chat ID
+     *
+     * @return true if the subscription was moved, false if the supergroup was already subscribed
+     */
+    public synchronized boolean migrateChat(String id, String newID) {
+        boolean moved = !subscribedIDs.contains(newID);
+
+        if (!moved) {
+            getSubscriptions().removeIf(subscriber -> subscriber.getUserID().equals(id));
+        } else {
+            for (Subscriber subscriber : getSubscriptions()) {
+                if (subscriber.getUserID().equals(id)) {
+                    subscriber.setUserID(newID);
+                }
             }
         }
 
+        subscribedIDs.remove(id);
+        subscribedIDs.add(newID);
+        TelegramHook.invalidateChat(id);
+
         plugin.getConfigHandler().saveSubscriptions();
+        return moved;
     }
 }
     
\ No newline at end of file
@@ -111,10 +111,8 @@ public class TelegramEventHandler implements Listener {
                      * Broadcast a message
                      */
                     case BROADCAST: {
-                        Message broadcastMessage = Lang.send(TelegramHook.getRedditLiveChat(), Lang.GENERAL_BROADCAST, event.getMessage().getSender().getUsername(),
-                                message.replaceAll("~", "\n"));
-
-                        RedditLiveBot.instance.getSubscriptionHandler().forwardMessage(broadcastMessage);
+                        RedditLiveBot.instance.getSubscriptionHandler().forwardWhenSent(Lang.send(TelegramHook.getRedditLiveChat(),
+                                Lang.GENERAL_BROADCAST, event.getMessage().getSender().getUsername(), message.replaceAll("~", "\n")), null);
                     }
                 }
             }
@@ -136,7 +134,7 @@ public class TelegramEventHandler implements Listener {
             }
 
             String command = ID.split("#")[0];
-            Chat chat = TelegramHook.getBot().getChat(ID.split("#")[1]);
+            Chat chat = TelegramHook.getChat(ID.split("#")[1]);
 
             if (command.equals(AdminInlineCommandType.START_FOLLOW.getCommandID())) {
                 /**
@@ -156,7 +154,7 @@ public class TelegramEventHandler implements Listener {
                 /**
                  * Stop following
                  */
-                redditHandler.unfollowLiveThread(true);
+                redditHandler.unfollowAllLiveThreads(true);
 
                 chat.sendMessage(
                         SendableTextMessage.builder().message(
@@ -277,7 +275,7 @@ public class TelegramEventHandler implements Listener {
              * User Subscriptions
              */
             String userToSubscribe = ID.split(":")[1];
-            Chat chat = TelegramHook.getBot().getChat(userToSubscribe);
+            Chat chat = TelegramHook.getChat(userToSubscribe);
 
             RedditLiveBot.instance.getSubscriptionHandler().subscribeChat(chat);
             event.getCallbackQuery().answer("You have subscribed to @RedditLiveBot", false);
@@ -335,15 +333,14 @@ public class TelegramEventHandler implements Listener {
             // Handle subscription prompting
             InlineQueryResponse.InlineQueryResponseBuilder subscriptionButton;
             InlineQueryResultArticle latestUpdate;
-            if (!instance.getSubscriptionHandler().isSubscribed(
-                    TelegramHook.getBot().getChat(event.getQuery().getSender().getId()))) {
+            if (!instance.getSubscriptionHandler().isSubscribed(String.valueOf(event.getQuery().getSender().getId()))) {
                 subscriptionButton = InlineQueryResponse.builder().switch_pm_text("Click here to subscribe to @RedditLiveBot.").switch_pm_parameter("subscribe");
             } else {
                 subscriptionButton = InlineQueryResponse.builder().switch_pm_text("You are subscribed to @RedditLiveBot.");
             }
 
             // Handle posting of last threads
-            if (instance.getRedditHandler().getCurrentLiveThread() == null) {
+            if (instance.getRedditHandler().getFollowedLiveThreads().isEmpty()) {
                 // Nothing to post
                 latestUpdate = InlineQueryResultArticle.builder()
                         .title("Latest update")
@@ -353,8 +350,18 @@ public class TelegramEventHandler implements Listener {
                         ).build();
             } else {
                 // Variables
-                LiveThreadBroadcasterTask liveThreadBroadcasterTask = RedditLiveBot.instance.getRedditHandler().getCurrentLiveThread();
-                LiveThreadChildrenData lastPost = liveThreadBroadcasterTask.getLastActualPost();
+                LiveThreadBroadcasterTask liveThreadBroadcasterTask = null;
+                LiveThreadChildrenData lastPost = null;
+
+                // Show the most recent update of all followed threads
+                for (LiveThreadBroadcasterTask followedThread : instance.getRedditHandler().getFollowedLiveThreads()) {
+                    LiveThreadChildrenData followedPost = followedThread.getLastActualPost();
+
+                    if (followedPost != null && (lastPost == null || followedPost.getCreated_utc() > lastPost.getCreated_utc())) {
+                        liveThreadBroadcasterTask = followedThread;
+                        lastPost = followedPost;
+                    }
+                }
 
                 if (lastPost == null) {
                     latestUpdate = InlineQueryResultArticle.builder()
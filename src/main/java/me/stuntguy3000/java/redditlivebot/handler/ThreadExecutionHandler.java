@@ -21,29 +21,187 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-
 package me.stuntguy3000.java.redditlivebot.handler;
 
-import lombok.Data;
+import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.object.config.BotSettings;
+import me.stuntguy3000.java.redditlivebot.scheduler.ForwardMessageTask;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Handles the execution of multiple threads
- * <p>Used for simultaneous message posting</p>
+ * <p>Used for simultaneous message posting. Tasks run on deliveryThreads stripes, each a single
+ * named thread with its own queue. Deliveries are assigned a stripe by the hash of their chat ID,
+ * so the messages of one chat run strictly in order while different chats run in parallel.</p>
+ * <p>The queues hold at most the delivery in progress of each chat, the backlog itself is bounded
+ * by the DeliveryHandler where deliveries are submitted.</p>
+ * <p>With deliveryVirtualThreads enabled on Java 21 or newer, every task runs on its own virtual
+ * thread instead and a semaphore limits how many run at once to Telegram's global rate limit.</p>
  *
  * @author stuntguy3000
  */
-@Data
 public class ThreadExecutionHandler {
-    private ExecutorService executorService;
+    private static final int VIRTUAL_CONCURRENCY = 30;
+    private final ThreadPoolExecutor[] stripes;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+    private final ExecutorService virtualExecutor;
+    private final Semaphore virtualPermits = new Semaphore(VIRTUAL_CONCURRENCY, true);
 
     public ThreadExecutionHandler() {
-        executorService = Executors.newCachedThreadPool();
+        this(RedditLiveBot.instance.getConfigHandler().getBotSettings());
+    }
+
+    private ThreadExecutionHandler(BotSettings settings) {
+        this(settings.getDeliveryThreads(), settings.getDeliveryVirtualThreads() != null && settings.getDeliveryVirtualThreads());
+    }
+
+    /**
+     * Constructs a new ThreadExecutionHandler without reading config.json
+     *
+     * @param threads Integer the amount of stripes
+     * @param virtual Boolean if tasks should run on virtual threads where available
+     */
+    ThreadExecutionHandler(int threads, boolean virtual) {
+        threads = Math.max(1, threads);
+        stripes = new ThreadPoolExecutor[threads];
+
+        for (int i = 0; i < threads; i++) {
+            String threadName = "Delivery-" + (i + 1);
+
+            // Tasks are only refused once shut down, they stay in the outbox for the next startup
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> new Thread(runnable, threadName), new ThreadPoolExecutor.DiscardPolicy());
+            stripes[i].prestartAllCoreThreads();
+        }
+
+        virtualExecutor = virtual ? createVirtualExecutor() : null;
+    }
+
+    /**
+     * Creates an executor which runs every task on a new virtual thread
+     * <p>The project targets Java 8, so the executor is looked up reflectively.</p>
+     *
+     * @return ExecutorService the executor, or null if virtual threads are not available
+     */
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            LogHandler.log("Delivering messages on virtual threads.");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            LogHandler.log("Virtual threads require Java 21 or newer, delivering messages on platform threads.");
+            return null;
+        }
+    }
+
+    /**
+     * Returns if tasks run on virtual threads
+     *
+     * @return true if virtual threads are used
+     */
+    public boolean isVirtual() {
+        return virtualExecutor != null;
     }
 
     public void queue(Runnable runnable) {
-        executorService.submit(runnable);
+        if (virtualExecutor != null) {
+            virtualExecutor.execute(() -> {
+                try {
+                    virtualPermits.acquire();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                try {
+                    runnable.run();
+                } finally {
+                    virtualPermits.release();
+                }
+            });
+            return;
+        }
+
+        getStripe(runnable).execute(runnable);
+    }
+
+    private ThreadPoolExecutor getStripe(Runnable runnable) {
+        int hash = runnable instanceof ForwardMessageTask
+                ? ((ForwardMessageTask) runnable).getChatID().hashCode() : nextStripe.getAndIncrement();
+
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    /**
+     * Stops accepting tasks and waits for the queued ones to finish
+     * <p>Tasks still queued at the deadline stay in the outbox and are replayed at the next startup</p>
+     *
+     * @param deadline Long the time in milliseconds to wait at most
+     */
+    public void shutdown(long deadline) {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+
+        try {
+            long end = System.currentTimeMillis() + deadline;
+
+            for (ThreadPoolExecutor stripe : stripes) {
+                stripe.awaitTermination(Math.max(0, end - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+
+            if (virtualExecutor != null) {
+                virtualExecutor.awaitTermination(Math.max(0, end - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (getQueueDepth() > 0) {
+            LogHandler.log("%d deliveries left for the next startup.", getQueueDepth());
+        }
+    }
+
+    /**
+     * Returns the amount of tasks waiting in the queue
+     *
+     * @return Integer the queue depth
+     */
+    public int getQueueDepth() {
+        if (virtualExecutor != null) {
+            return virtualPermits.getQueueLength();
+        }
+
+        int depth = 0;
+
+        for (ThreadPoolExecutor stripe : stripes) {
+            depth += stripe.getQueue().size();
+        }
+
+        return depth;
+    }
+
+    /**
+     * Returns the amount of threads running a task
+     *
+     * @return Integer the amount of active workers
+     */
+    public int getActiveWorkers() {
+        if (virtualExecutor != null) {
+            return VIRTUAL_CONCURRENCY - virtualPermits.availablePermits();
+        }
+
+        int active = 0;
+
+        for (ThreadPoolExecutor stripe : stripes) {
+            active += stripe.getActiveCount();
+        }
+
+        return active;
     }
 }
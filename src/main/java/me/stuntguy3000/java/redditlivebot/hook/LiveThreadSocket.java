@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import me.stuntguy3000.java.redditlivebot.object.Lang;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildren;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildrenData;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadSocketMessage;
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.handshake.ServerHandshake;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Receives pushed updates from a live thread's websocket
+ * <p>Updates are handed to the owning LiveThreadBroadcasterTask, which falls back to polling
+ * whenever this socket is not open.</p>
+ * <p>The socket connects asynchronously, open waits for the handshake no longer than its timeout
+ * so a scheduler thread is never held by an unresponsive server. Nothing touches the network
+ * before open, the connection itself is made on the socket's own thread within CONNECT_TIMEOUT.</p>
+ *
+ * @author stuntguy3000
+ */
+public class LiveThreadSocket extends WebSocketClient {
+    private static final Gson GSON = new Gson();
+    private static final int CONNECT_TIMEOUT = 5 * 1000;
+    private final String threadID;
+    private final Consumer<LiveThreadChildrenData> onUpdate;
+    private final Runnable onComplete;
+    private final CountDownLatch handshake = new CountDownLatch(1);
+    private final Socket transport;
+
+    /**
+     * Creates a new LiveThreadSocket
+     *
+     * @param uri        URI the websocket_url of the live thread
+     * @param threadID   String the ID of the live thread
+     * @param onUpdate   Consumer receiving every pushed update
+     * @param onComplete Runnable run once the live thread is marked complete
+     */
+    public LiveThreadSocket(URI uri, String threadID, Consumer<LiveThreadChildrenData> onUpdate, Runnable onComplete) throws IOException {
+        super(uri, new Draft_6455(), null, CONNECT_TIMEOUT);
+        this.threadID = threadID;
+        this.onUpdate = onUpdate;
+        this.onComplete = onComplete;
+
+        // Left unconnected, the client connects it when the socket's thread starts
+        transport = "wss".equalsIgnoreCase(uri.getScheme()) ? SSLSocketFactory.getDefault().createSocket() : new Socket();
+        setSocket(transport);
+    }
+
+    /**
+     * Connects to the websocket, waiting at most the timeout for the handshake
+     *
+     * @param timeout Long the longest time to wait
+     * @param unit    TimeUnit the unit of the timeout
+     *
+     * @return True if the socket is open
+     */
+    public boolean open(long timeout, TimeUnit unit) throws InterruptedException {
+        connect();
+
+        if (!handshake.await(timeout, unit) || !isOpen()) {
+            close();
+
+            // A stalled TLS handshake only gives up the socket's thread once the connection is closed
+            try {
+                transport.close();
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void onOpen(ServerHandshake serverHandshake) {
+        handshake.countDown();
+        Lang.sendDebug("Websocket opened for live thread %s.", threadID);
+    }
+
+    @Override
+    public void onMessage(String message) {
+        LiveThreadSocketMessage socketMessage;
+
+        try {
+            socketMessage = GSON.fromJson(message, LiveThreadSocketMessage.class);
+        } catch (JsonParseException e) {
+            Lang.sendDebug("Invalid websocket frame: %s", e.getMessage());
+            return;
+        }
+
+        if (socketMessage == null || socketMessage.getType() == null) {
+            return;
+        }
+
+        switch (socketMessage.getType()) {
+            case "update": {
+                LiveThreadChildren update = GSON.fromJson(socketMessage.getPayload(), LiveThreadChildren.class);
+
+                if (update != null) {
+                    onUpdate.accept(update.getData());
+                }
+                break;
+            }
+            case "complete": {
+                onComplete.run();
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        handshake.countDown();
+        Lang.sendDebug("Websocket closed for live thread %s (%d), falling back to polling.", threadID, code);
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        handshake.countDown();
+        Lang.sendDebug("Websocket error for live thread %s: %s", threadID, ex.getMessage());
+    }
+}
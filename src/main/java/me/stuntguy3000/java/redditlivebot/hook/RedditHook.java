@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import lombok.Getter;
+import me.stuntguy3000.java.redditlivebot.object.reddit.RequestPriority;
+import org.apache.http.client.cache.CacheResponseStatus;
+import org.apache.http.client.cache.HttpCacheContext;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.cache.CacheConfig;
+import org.apache.http.impl.client.cache.CachingHttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import javax.xml.ws.http.HTTPException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Shared HTTP client used for all Reddit requests
+ * <p>Connections are pooled and kept alive between polls, responses are requested gzipped and
+ * cached locally so repeat polls are revalidated with If-None-Match/If-Modified-Since instead of
+ * being downloaded again.</p>
+ *
+ * @author stuntguy3000
+ */
+public class RedditHook {
+    private static final String USER_AGENT = "me.stuntguy3000.java.redditlivebot (by /u/stuntguy3000)";
+    @Getter
+    private static final CloseableHttpClient httpClient = createHttpClient();
+    @Getter
+    private static final RedditRateLimiter rateLimiter = new RedditRateLimiter();
+
+    /**
+     * Builds the pooled, caching HTTP client
+     *
+     * @return CloseableHttpClient the created client
+     */
+    private static CloseableHttpClient createHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(20);
+        connectionManager.setDefaultMaxPerRoute(20);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(2000)
+                .setConnectionRequestTimeout(2000)
+                .setSocketTimeout(2000)
+                .build();
+
+        // Reddit marks listings as private, so the cache must not behave as a shared cache
+        CacheConfig cacheConfig = CacheConfig.custom()
+                .setSharedCache(false)
+                .setMaxCacheEntries(100)
+                .setMaxObjectSize(512 * 1024)
+                .build();
+
+        return CachingHttpClients.custom()
+                .setCacheConfig(cacheConfig)
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setUserAgent(USER_AGENT)
+                .build();
+    }
+
+    /**
+     * Perform a GET request against Reddit
+     * <p>The response body is handed to the reader and closed afterwards, returning the connection
+     * to the pool. Any status other than 200 throws a HTTPException.</p>
+     * <p>Requests are governed by the RedditRateLimiter, a deferrable request which does not fit
+     * in the remaining budget for its priority is not sent and null is returned. Other requests
+     * throw a RedditRateLimitException with the time until the budget allows them, so the caller
+     * can retry then without holding its thread.</p>
+     *
+     * @param url      String the URL to request
+     * @param priority RequestPriority the priority of the request
+     * @param reader   ResponseReader the reader used to parse the response body
+     *
+     * @return T the value returned by the reader, or null if the request was deferred
+     */
+    public static <T> T get(String url, RequestPriority priority, ResponseReader<T> reader) throws IOException {
+        if (priority.isDeferrable()) {
+            if (!rateLimiter.tryAcquire(priority)) {
+                return null;
+            }
+        } else {
+            long wait = rateLimiter.reserve(priority);
+
+            if (wait > 0) {
+                throw new RedditRateLimitException(wait);
+            }
+        }
+
+        HttpGet request = new HttpGet(url);
+        HttpCacheContext context = HttpCacheContext.create();
+
+        try (CloseableHttpResponse response = httpClient.execute(request, context)) {
+            if (context.getCacheResponseStatus() != CacheResponseStatus.CACHE_HIT) {
+                rateLimiter.update(response);
+            }
+
+            int statusCode = response.getStatusLine().getStatusCode();
+
+            if (statusCode != 200) {
+                EntityUtils.consume(response.getEntity());
+                throw new HTTPException(statusCode);
+            }
+
+            try (InputStream inputStream = response.getEntity().getContent()) {
+                return reader.read(inputStream);
+            }
+        }
+    }
+
+    /**
+     * Close the client and all pooled connections
+     */
+    public static void shutdown() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Parses the body of a Reddit response
+     */
+    public interface ResponseReader<T> {
+        T read(InputStream inputStream) throws IOException;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request which must not be deferred while the Reddit rate limit is spent
+ * <p>The caller retries once the time given has passed, so no thread waits for the rate limit.</p>
+ *
+ * @author stuntguy3000
+ */
+public class RedditRateLimitException extends IOException {
+    @Getter
+    private final long retryAfter;
+
+    /**
+     * Constructs a new RedditRateLimitException
+     *
+     * @param retryAfter Long the time in milliseconds until the request may be sent
+     */
+    public RedditRateLimitException(long retryAfter) {
+        super("The Reddit rate limit is spent for " + retryAfter + "ms");
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.object.reddit.RequestPriority;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+
+/**
+ * Governs the rate of every request made to Reddit
+ * <p>A local token bucket refills at the redditRequestBudget from config.json. Once Reddit has
+ * answered, its X-Ratelimit-Remaining and X-Ratelimit-Reset headers cap the bucket as well. Each
+ * RequestPriority keeps a reserve of the budget, so low priority requests are deferred first.</p>
+ * <p>Followed live threads are never deferred, their requests are told how long until the budget
+ * allows them, so their poll is rescheduled for then rather than lost or waited for.</p>
+ *
+ * @author stuntguy3000
+ */
+public class RedditRateLimiter {
+    private double tokens = -1;
+    private long lastRefill = System.currentTimeMillis();
+    private double serverRemaining = -1;
+    private double serverWindow = -1;
+    private long serverReset = 0;
+
+    /**
+     * Try to take a token for a request
+     *
+     * @param priority RequestPriority the priority of the request
+     *
+     * @return true if the request may be sent now
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        return reserve(priority) == 0;
+    }
+
+    /**
+     * Takes a token for a request if one is available
+     *
+     * @param priority RequestPriority the priority of the request
+     *
+     * @return Long 0 if a token was taken, otherwise the time in milliseconds until one may be
+     */
+    public synchronized long reserve(RequestPriority priority) {
+        refill();
+
+        int budget = getBudget();
+        double required = budget * priority.getReserve() + 1;
+
+        if (serverRemaining >= 0 && serverRemaining < serverWindow * priority.getReserve() + 1) {
+            // Reddit's own window is spent, nothing is sent until it resets
+            return Math.max(1, serverReset - System.currentTimeMillis());
+        }
+
+        if (tokens < required) {
+            return Math.max(1, (long) Math.ceil((required - tokens) * 60000 / budget));
+        }
+
+        if (serverRemaining >= 0) {
+            serverRemaining--;
+        }
+
+        tokens--;
+        return 0;
+    }
+
+    /**
+     * Update the known rate limit from the headers of a Reddit response
+     *
+     * @param response HttpResponse the response received
+     */
+    public synchronized void update(HttpResponse response) {
+        Header remaining = response.getFirstHeader("X-Ratelimit-Remaining");
+        Header used = response.getFirstHeader("X-Ratelimit-Used");
+        Header reset = response.getFirstHeader("X-Ratelimit-Reset");
+
+        try {
+            if (remaining != null && reset != null) {
+                serverRemaining = Double.parseDouble(remaining.getValue());
+                serverWindow = serverRemaining + (used == null ? 0 : Double.parseDouble(used.getValue()));
+                serverReset = System.currentTimeMillis() + Long.parseLong(reset.getValue()) * 1000;
+            }
+        } catch (NumberFormatException ignore) {
+
+        }
+
+        // Throttled, nothing more can be sent until the window resets
+        if (response.getStatusLine().getStatusCode() == 429) {
+            serverRemaining = 0;
+
+            if (serverReset <= System.currentTimeMillis()) {
+                serverReset = System.currentTimeMillis() + 60 * 1000;
+            }
+        }
+    }
+
+    /**
+     * Returns the interval between requests which can be sustained right now
+     *
+     * @return Long the interval in milliseconds
+     */
+    public synchronized long getRequestInterval() {
+        refill();
+
+        long interval = 60 * 1000L / Math.max(1, getBudget());
+
+        if (serverRemaining >= 0) {
+            long untilReset = serverReset - System.currentTimeMillis();
+            interval = Math.max(interval, (long) (untilReset / Math.max(1, serverRemaining)));
+        }
+
+        return interval;
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        int budget = getBudget();
+
+        if (tokens < 0) {
+            tokens = budget;
+        } else {
+            tokens = Math.min(budget, tokens + (now - lastRefill) * budget / 60000.0);
+        }
+
+        lastRefill = now;
+
+        // Reddit's window has reset, rely on the local bucket until the next response
+        if (serverRemaining >= 0 && now >= serverReset) {
+            serverRemaining = -1;
+        }
+    }
+
+    private int getBudget() {
+        return Math.max(1, RedditLiveBot.instance.getConfigHandler().getBotSettings().getRedditRequestBudget());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent requests for the same key into a single request
+ * <p>The first caller for a key performs the request while any caller arriving in the meantime
+ * waits for its result. Results are then kept for a short TTL, so a burst of readers only costs
+ * a single request. A null result means the request was deferred and is never cached.</p>
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ *
+ * @author stuntguy3000
+ */
+public class RequestCoalescer<K, V> {
+    private static final int PRUNE_THRESHOLD = 256;
+    private final long ttl;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Map<K, CachedResult<V>> results = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new RequestCoalescer
+     *
+     * @param ttl Long the time in milliseconds a result is reused for
+     */
+    public RequestCoalescer(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the result for a key, performing the request only if no result is cached and
+     * no request for the key is in flight
+     *
+     * @param key     K the key of the request
+     * @param request Callable the request to perform
+     *
+     * @return V the result of the request, or null if it was deferred
+     */
+    public V get(K key, Callable<V> request) throws Exception {
+        CachedResult<V> cached = results.get(key);
+
+        if (cached != null && !cached.isExpired()) {
+            return cached.value;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            V value = await(existing);
+
+            // The leading request was deferred, which may have been due to its priority
+            return value != null ? value : request.call();
+        }
+
+        try {
+            V value = request.call();
+
+            if (value != null) {
+                cache(key, value);
+            }
+
+            future.complete(value);
+            return value;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+
+            throw e;
+        }
+    }
+
+    private void cache(K key, V value) {
+        if (results.size() >= PRUNE_THRESHOLD) {
+            Iterator<CachedResult<V>> iterator = results.values().iterator();
+
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired()) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        results.put(key, new CachedResult<>(value, System.currentTimeMillis() + ttl));
+    }
+
+    private static class CachedResult<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private CachedResult(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
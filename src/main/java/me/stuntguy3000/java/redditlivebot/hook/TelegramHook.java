@@ -24,6 +24,11 @@
 
 package me.stuntguy3000.java.redditlivebot.hook;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.Unirest;
+import com.mashape.unirest.http.exceptions.UnirestException;
 import lombok.Getter;
 import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
 import me.stuntguy3000.java.redditlivebot.handler.JenkinsUpdateHandler;
@@ -31,14 +36,20 @@ import me.stuntguy3000.java.redditlivebot.handler.TelegramEventHandler;
 import me.stuntguy3000.java.redditlivebot.object.ClassGetter;
 import me.stuntguy3000.java.redditlivebot.object.Lang;
 import me.stuntguy3000.java.redditlivebot.object.command.Command;
+import me.stuntguy3000.java.redditlivebot.object.telegram.TelegramResponse;
 import pro.zackpollard.telegrambot.api.TelegramBot;
 import pro.zackpollard.telegrambot.api.chat.Chat;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 // @author Luke Anderson | stuntguy3000
 public class TelegramHook {
+    private static final String API_URL = "https://api.telegram.org/bot";
+    private static final Gson GSON = new Gson();
+    private static final Map<String, Chat> chatCache = new ConcurrentHashMap<>();
     @Getter
     private static TelegramBot bot;
     @Getter
@@ -71,7 +82,100 @@ public class TelegramHook {
                             + updateInformation.getGitCommitIds().get(0) + ")");
         }
 
-        redditLiveChat = TelegramHook.getBot().getChat("@RedditLive");
+        redditLiveChat = getChat("@RedditLive");
+    }
+
+    /**
+     * Returns the Chat of a chat ID, resolving it only the first time
+     *
+     * @param chatID String the chat's ID
+     *
+     * @return Chat the chat
+     */
+    public static Chat getChat(String chatID) {
+        return chatCache.computeIfAbsent(chatID, id -> bot.getChat(id));
+    }
+
+    /**
+     * Returns the Chat of a chat ID, resolving it only the first time
+     *
+     * @param chatID Long the chat's ID
+     *
+     * @return Chat the chat
+     */
+    public static Chat getChat(long chatID) {
+        return getChat(String.valueOf(chatID));
+    }
+
+    /**
+     * Caches a Chat already known, such as one which has just subscribed
+     *
+     * @param chat Chat the chat
+     */
+    public static void cacheChat(Chat chat) {
+        chatCache.put(chat.getId(), chat);
+    }
+
+    /**
+     * Forgets the Chat of a chat ID, such as after the chat migrated or the bot was removed
+     *
+     * @param chatID String the chat's ID
+     */
+    public static void invalidateChat(String chatID) {
+        chatCache.remove(chatID);
+    }
+
+    /**
+     * Forward a message to a chat through the Bot API directly
+     * <p>Unlike Message.forwardMessage, the full response is returned, including the error code
+     * and how long to wait when refused by Telegram's flood control.</p>
+     *
+     * @param chatID     String the ID of the chat to forward to
+     * @param fromChatID String the ID of the chat the message was sent in
+     * @param messageID  Long the ID of the message to forward
+     *
+     * @return TelegramResponse the response of the Bot API, or null if no response was received
+     */
+    public static TelegramResponse forwardMessage(String chatID, String fromChatID, long messageID) {
+        String url = API_URL + RedditLiveBot.instance.getConfigHandler().getBotSettings().getTelegramKey() + "/forwardMessage";
+
+        try {
+            HttpResponse<String> response = Unirest.post(url)
+                    .field("chat_id", chatID)
+                    .field("from_chat_id", fromChatID)
+                    .field("message_id", String.valueOf(messageID))
+                    .asString();
+
+            return GSON.fromJson(response.getBody(), TelegramResponse.class);
+        } catch (UnirestException | JsonParseException e) {
+            Lang.sendDebug("Unable to forward message to %s: %s", chatID, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Send a Markdown message to a chat through the Bot API directly
+     *
+     * @param chatID String the ID of the chat to send to
+     * @param text   String the Markdown text of the message
+     *
+     * @return TelegramResponse the response of the Bot API, or null if no response was received
+     */
+    public static TelegramResponse sendMessage(String chatID, String text) {
+        String url = API_URL + RedditLiveBot.instance.getConfigHandler().getBotSettings().getTelegramKey() + "/sendMessage";
+
+        try {
+            HttpResponse<String> response = Unirest.post(url)
+                    .field("chat_id", chatID)
+                    .field("text", text)
+                    .field("parse_mode", "Markdown")
+                    .asString();
+
+            return GSON.fromJson(response.getBody(), TelegramResponse.class);
+        } catch (UnirestException | JsonParseException e) {
+            Lang.sendDebug("Unable to send message to %s: %s", chatID, e.getMessage());
+            return null;
+        }
     }
 
     public static void initializeCommands() {
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import me.stuntguy3000.java.redditlivebot.object.telegram.SendLane;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Paces every message sent to Telegram
+ * <p>Telegram allows a bot about 30 messages per second overall, one message per second in a
+ * private chat and 20 messages per minute in a group. Rather than rejecting requests over the
+ * limit, each message reserves the earliest slot free in its chat, so a fan-out is spread out at
+ * the highest sustainable rate.</p>
+ * <p>The global rate is a token bucket shared by the SendLanes in strict priority. A lane only
+ * takes a token while more than its reserve is left for the lanes above it, unless it has sent
+ * less than its floor, so a large fan-out uses all the capacity channel posts and admin replies
+ * leave unused without ever holding them back.</p>
+ *
+ * @author stuntguy3000
+ */
+public class TelegramRateLimiter {
+    private static final double GLOBAL_RATE = 30;
+    // A third of a second of messages, enough for the lanes' reserves without bursting far past the rate
+    private static final double BURST = 10;
+    private static final long PRIVATE_INTERVAL = 1000;
+    private static final long GROUP_INTERVAL = 60 * 1000 / 20;
+    private static final int PRUNE_THRESHOLD = 1024;
+    private final Map<String, Long> chatSlots = new HashMap<>();
+    private final long[] laneSent = new long[SendLane.values().length];
+    private double tokens = BURST;
+    private long lastRefill = System.currentTimeMillis();
+
+    /**
+     * Reserves the next slot a message may be sent to a chat in
+     *
+     * @param chatID String the chat's ID
+     *
+     * @return Long the Unix time in milliseconds the message may be sent at
+     */
+    public synchronized long reserveChat(String chatID) {
+        long now = System.currentTimeMillis();
+        long slot = Math.max(now, chatSlots.getOrDefault(chatID, 0L));
+
+        chatSlots.put(chatID, slot + getChatInterval(chatID));
+
+        if (chatSlots.size() > PRUNE_THRESHOLD) {
+            prune(now);
+        }
+
+        return slot;
+    }
+
+    /**
+     * Takes a token of the global rate for a lane if one is available
+     *
+     * @param lane SendLane the lane the message is sent through
+     *
+     * @return Long 0 if a token was taken, otherwise the Unix time in milliseconds to try again at
+     */
+    public synchronized long tryAcquire(SendLane lane) {
+        long now = System.currentTimeMillis();
+        refill(now);
+
+        long floorAt = lane.getFloor() > 0
+                ? laneSent[lane.ordinal()] + (long) Math.ceil(1000 / (GLOBAL_RATE * lane.getFloor())) : Long.MAX_VALUE;
+        double required = now >= floorAt ? 1 : BURST * lane.getReserve() + 1;
+
+        if (tokens >= required) {
+            tokens--;
+            laneSent[lane.ordinal()] = now;
+            return 0;
+        }
+
+        long retryAt = now + getRefillTime(required);
+
+        // A lane held back by its reserve may still be let through by its floor sooner
+        if (floorAt < retryAt) {
+            retryAt = Math.max(floorAt, now + getRefillTime(1));
+        }
+
+        return Math.max(now + 1, retryAt);
+    }
+
+    /**
+     * Returns when the next message may be sent to a chat
+     *
+     * @param chatID String the chat's ID
+     *
+     * @return Long the Unix time in milliseconds of the chat's next free slot
+     */
+    public synchronized long getChatSlot(String chatID) {
+        return chatSlots.getOrDefault(chatID, 0L);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(BURST, tokens + (now - lastRefill) * GLOBAL_RATE / 1000);
+        lastRefill = now;
+    }
+
+    private long getRefillTime(double required) {
+        return (long) Math.ceil(Math.max(0, required - tokens) * 1000 / GLOBAL_RATE);
+    }
+
+    /**
+     * Holds back every message to a chat after Telegram asked to retry later
+     *
+     * @param chatID     String the chat's ID
+     * @param retryAfter Long the time in milliseconds Telegram asked to wait
+     */
+    public synchronized void backoff(String chatID, long retryAfter) {
+        long until = System.currentTimeMillis() + retryAfter;
+
+        chatSlots.put(chatID, Math.max(until, chatSlots.getOrDefault(chatID, 0L)));
+    }
+
+    /**
+     * Returns the time between two messages to a chat
+     * <p>Group and channel IDs are negative, private chat IDs are the user's positive ID</p>
+     *
+     * @param chatID String the chat's ID
+     *
+     * @return Long the interval in milliseconds
+     */
+    private long getChatInterval(String chatID) {
+        return chatID.startsWith("-") || chatID.startsWith("@") ? GROUP_INTERVAL : PRIVATE_INTERVAL;
+    }
+
+    private void prune(long now) {
+        Iterator<Long> iterator = chatSlots.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next() <= now) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -25,8 +25,10 @@
 package me.stuntguy3000.java.redditlivebot.object;
 
 import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.handler.DeliveryHandler;
 import me.stuntguy3000.java.redditlivebot.handler.LogHandler;
 import me.stuntguy3000.java.redditlivebot.hook.TelegramHook;
+import me.stuntguy3000.java.redditlivebot.object.telegram.SendLane;
 import pro.zackpollard.telegrambot.api.chat.Chat;
 import pro.zackpollard.telegrambot.api.chat.message.Message;
 import pro.zackpollard.telegrambot.api.chat.message.send.ParseMode;
@@ -35,6 +37,7 @@ import pro.zackpollard.telegrambot.api.chat.message.send.SendableTextMessage;
 import pro.zackpollard.telegrambot.api.user.User;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -52,9 +55,10 @@ public class Lang {
     public static final String GENERAL_RESTART = "*Manual Restart engaged by* `%s`*.*";
     public static final String LIVE_THREAD_START = Emoji.BLUE_RIGHT_ARROW.getText() + " *Following a new feed!*\n\n" +
             "_URL: _ https://reddit.com/live/%s";
-    public static final String LIVE_THREAD_STOP = Emoji.REPLAY.getText() + " *RedditLive has stopped tracking this live feed due to inactivity*";
+    public static final String LIVE_THREAD_STOP = Emoji.REPLAY.getText() + " `%s` *RedditLive has stopped tracking this live feed due to inactivity*";
     public static final String LIVE_THREAD_UPDATE = Emoji.PERSON_SPEAKING.getText() + " `%s` *New update by %s*\n\n%s";
     public static final String COMMAND_ADMIN_UNFOLLOW = Emoji.GREEN_BOX_TICK.getText() + " *Unfollowed the current live thread.*";
+    public static final String LIVE_THREAD_DIGEST = Emoji.PERSON_SPEAKING.getText() + " *%d new updates*";
     public static final String LIVE_THREAD_REPOST_UPDATE = Emoji.PERSON_SPEAKING.getText() + " `%s` *Last update by %s*\n\n%s";
     private static final String MISC_ERROR_PREFIX = Emoji.RED_CROSS.getText() + " ";
     public static final String ERROR_CHAT_NOT_SUBSCRIBED = Lang.MISC_ERROR_PREFIX + "*This chat is not subscribed.*";
@@ -65,16 +69,29 @@ public class Lang {
 
     private static SendableMessage build(String message, Object... format) {
         SendableTextMessage.SendableTextMessageBuilder sendableTextMessageBuilder = SendableTextMessage.builder();
-        String formatted = String.format(message, format);
-        formatted = rigerousReplace(USERNAME_PATTERN, formatted, "[/u/<r>](https://reddit.com/u/<r>)");
-        formatted = rigerousReplace(SUBREDDIT_PATTERN, formatted, "[/r/<r>](https://reddit.com/r/<r>)");
 
-        sendableTextMessageBuilder.message(formatted);
+        sendableTextMessageBuilder.message(format(message, format));
         sendableTextMessageBuilder.parseMode(ParseMode.MARKDOWN);
 
         return sendableTextMessageBuilder.build();
     }
 
+    /**
+     * Formats a message, linking any mentioned users and subreddits
+     *
+     * @param message String the message format
+     * @param format  Object the format arguments
+     *
+     * @return String the formatted Markdown text
+     */
+    public static String format(String message, Object... format) {
+        String formatted = String.format(message, format);
+        formatted = rigerousReplace(USERNAME_PATTERN, formatted, "[/u/<r>](https://reddit.com/u/<r>)");
+        formatted = rigerousReplace(SUBREDDIT_PATTERN, formatted, "[/r/<r>](https://reddit.com/r/<r>)");
+
+        return formatted;
+    }
+
     private static String rigerousReplace(Pattern pattern, String text, String replace) {
         Matcher matcher = pattern.matcher(text);
 
@@ -87,11 +104,27 @@ public class Lang {
     }
 
     public static void send(Long chatID, String message, Object... format) {
-        TelegramHook.getBot().sendMessage(TelegramHook.getBot().getChat(chatID), build(message, format));
+        send(TelegramHook.getChat(chatID), message, format);
+    }
+
+    public static CompletableFuture<Message> send(Chat chat, String message, Object... format) {
+        return send(getLane(chat), chat, build(message, format));
+    }
+
+    private static CompletableFuture<Message> send(SendLane lane, Chat chat, SendableMessage message) {
+        DeliveryHandler deliveryHandler = RedditLiveBot.instance.getDeliveryHandler();
+
+        if (deliveryHandler == null) {
+            return CompletableFuture.completedFuture(TelegramHook.getBot().sendMessage(chat, message));
+        }
+
+        return deliveryHandler.send(lane, chat, message);
     }
 
-    public static Message send(Chat chat, String message, Object... format) {
-        return TelegramHook.getBot().sendMessage(chat, build(message, format));
+    private static SendLane getLane(Chat chat) {
+        Chat channel = TelegramHook.getRedditLiveChat();
+
+        return channel != null && channel.getId().equals(chat.getId()) ? SendLane.CHANNEL : SendLane.INTERACTIVE;
     }
 
     public static void send(User user, String message, Object... format) {
@@ -105,12 +138,20 @@ public class Lang {
 
     public static void sendDebug(String message, Object... format) {
         if (RedditLiveBot.DEBUG) {
-            sendAdmin("`[DEBUG]` " + message, format);
+            DeliveryHandler deliveryHandler = RedditLiveBot.instance.getDeliveryHandler();
+
+            if (deliveryHandler == null) {
+                sendAdmin("`[DEBUG]` " + message, format);
+                return;
+            }
+
+            deliveryHandler.sendDebug(TelegramHook.getChat(-115432737), build("*[ADMIN]* `[DEBUG]` " + message, format));
+            LogHandler.log("[ADMIN] [DEBUG] " + message.replace("*", "").replace("_", ""), format);
         }
     }
 
     private static void sendRaw(long chatID, String message, Object... format) {
-        TelegramHook.getBot().sendMessage(TelegramHook.getBot().getChat(chatID), SendableTextMessage.builder().message(String.format(message, format)).build());
+        send(SendLane.INTERACTIVE, TelegramHook.getChat(chatID), SendableTextMessage.builder().message(String.format(message, format)).build());
     }
 
     public static String stringJoin(String[] aArr, String prefix, String sSep) {
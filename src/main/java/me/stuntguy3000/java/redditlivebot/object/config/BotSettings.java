@@ -27,16 +27,31 @@ package me.stuntguy3000.java.redditlivebot.object.config;
 import lombok.Data;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 // @author Luke Anderson | stuntguy3000
 @Data
 public class BotSettings {
     private Boolean autoUpdater;
-    private long lastPost;
+    // Replaced by followedLiveThreads, only read to migrate older config files
     private String currentLiveFeed;
+    private Long lastPost;
     private Boolean debugMode;
+    private int digestWindow;
+    private int deliveryQueueSize;
+    private SaturationPolicy deliverySaturationPolicy;
+    private int deliveryThreads;
+    private Boolean deliveryVirtualThreads;
+    private int discoveryLimit;
+    private List<String> discoveryQueries;
+    private List<String> discoverySubreddits;
+    private Map<String, Long> followedLiveThreads;
     private List<String> knownLiveFeeds;
+    private Boolean liveThreadWebSocket;
+    private int redditRequestBudget;
     private List<Long> telegramAdmins;
     private String telegramKey;
 
@@ -44,8 +59,19 @@ public class BotSettings {
         this.telegramKey = "";
         this.telegramAdmins = new ArrayList<>();
         this.knownLiveFeeds = new ArrayList<>();
+        this.followedLiveThreads = new HashMap<>();
         this.autoUpdater = true;
         this.debugMode = false;
+        this.digestWindow = 0;
+        this.deliveryQueueSize = 1000;
+        this.deliverySaturationPolicy = SaturationPolicy.BLOCK;
+        this.deliveryThreads = 8;
+        this.deliveryVirtualThreads = false;
+        this.discoveryLimit = 10;
+        this.discoveryQueries = new ArrayList<>();
+        this.discoverySubreddits = new ArrayList<>(Collections.singletonList("live"));
+        this.liveThreadWebSocket = false;
+        this.redditRequestBudget = 60;
     }
 }
     
\ No newline at end of file
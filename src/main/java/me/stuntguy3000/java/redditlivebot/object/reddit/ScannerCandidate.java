@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.object.reddit;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import me.stuntguy3000.java.redditlivebot.object.reddit.subreddit.SubredditChildrenData;
+
+import java.util.Objects;
+
+/**
+ * Represents the last verdict of the subreddit scanner on a live thread
+ *
+ * @author stuntguy3000
+ */
+@Data
+@AllArgsConstructor
+public class ScannerCandidate {
+    private String threadID;
+    private String title;
+    private int score;
+    private boolean active;
+    private long lastUpdate;
+    private long checkedAt;
+
+    /**
+     * Returns if the listing data of a post still matches this candidate
+     *
+     * @param threadData SubredditChildrenData the post linking to the thread
+     *
+     * @return true if the title and score are unchanged
+     */
+    public boolean matches(SubredditChildrenData threadData) {
+        return score == threadData.getScore() && Objects.equals(title, threadData.getTitle());
+    }
+}
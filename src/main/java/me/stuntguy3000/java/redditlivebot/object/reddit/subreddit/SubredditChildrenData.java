@@ -26,13 +26,40 @@ package me.stuntguy3000.java.redditlivebot.object.reddit.subreddit;
 
 import lombok.Data;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 // @author Luke Anderson | stuntguy3000
 @Data
 public class SubredditChildrenData {
+    private static final Pattern LIVE_THREAD_URL = Pattern.compile("reddit\\.com/live/(\\w+)");
     private String author;
     private long created_utc;
     private SubredditChildrenDataMedia media;
     private int score;
     private String title;
+    private String url;
+
+    /**
+     * Returns the ID of the live thread this post links to
+     * <p>Uses the embedded media if present, otherwise the post's URL</p>
+     *
+     * @return String the live thread's ID, or null if the post does not link to a live thread
+     */
+    public String getLiveThreadID() {
+        if (media != null && media.getEvent_id() != null) {
+            return media.getEvent_id();
+        }
+
+        if (url != null) {
+            Matcher matcher = LIVE_THREAD_URL.matcher(url);
+
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+
+        return null;
+    }
 }
     
\ No newline at end of file
@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.object.telegram;
+
+import lombok.Getter;
+
+/**
+ * The lanes messages are sent to Telegram through, in order of priority
+ * <p>The reserve is the fraction of the bot's global rate limit which must remain for a message
+ * of the lane to be sent, so higher lanes go first and lower lanes borrow whatever capacity they
+ * leave unused. The floor is the share of the rate a lane is guaranteed while the lanes above it
+ * are busy, so no lane is starved.</p>
+ *
+ * @author stuntguy3000
+ */
+public enum SendLane {
+    CHANNEL(0, 0),
+    INTERACTIVE(0.1, 0.1),
+    FANOUT(0.3, 0.2),
+    DEBUG(0.6, 0.05);
+
+    @Getter
+    double reserve;
+    @Getter
+    double floor;
+
+    SendLane(double reserve, double floor) {
+        this.reserve = reserve;
+        this.floor = floor;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.object.telegram;
+
+import lombok.Data;
+
+/**
+ * Represents the response of a Telegram Bot API method
+ *
+ * @author stuntguy3000
+ */
+@Data
+public class TelegramResponse {
+    private boolean ok;
+    private int error_code;
+    private String description;
+    private TelegramResponseParameters parameters;
+
+    /**
+     * Returns if the request was refused by Telegram's flood control
+     *
+     * @return true if the request should be retried after getRetryAfter()
+     */
+    public boolean isRateLimited() {
+        return !ok && error_code == 429;
+    }
+
+    /**
+     * Returns if the chat can no longer be messaged
+     * <p>The bot was blocked, kicked or the chat no longer exists</p>
+     *
+     * @return true if the chat should be unsubscribed
+     */
+    public boolean isChatUnavailable() {
+        return !ok && (error_code == 403
+                || (error_code == 400 && description != null && description.toLowerCase().contains("chat not found")));
+    }
+
+    /**
+     * Returns if the request failed due to a problem on Telegram's side and may be retried
+     *
+     * @return true if the request may succeed when retried
+     */
+    public boolean isTransient() {
+        return !ok && error_code >= 500;
+    }
+
+    /**
+     * Returns the chat ID of the supergroup a group was migrated to
+     *
+     * @return String the new chat ID, or null if the chat was not migrated
+     */
+    public String getMigrateToChatID() {
+        return parameters == null ? null : parameters.getMigrate_to_chat_id();
+    }
+
+    /**
+     * Returns how long Telegram asked to wait before retrying
+     *
+     * @return Long the time in milliseconds, or 0 if not specified
+     */
+    public long getRetryAfter() {
+        return parameters == null ? 0 : parameters.getRetry_after() * 1000L;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.scheduler;
+
+import lombok.Getter;
+import me.stuntguy3000.java.redditlivebot.hook.RedditHook;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides when a polling task should next call Reddit
+ * <p>The delay drops to the minimum whenever activity is recorded and backs off exponentially
+ * while quiet. Every running poller shares the request rate the RedditRateLimiter can sustain, so the delay
+ * never falls below the share of that rate available to each poller.</p>
+ *
+ * @author stuntguy3000
+ */
+public class AdaptivePollInterval {
+    private static final AtomicInteger activePollers = new AtomicInteger();
+    private static final double BACKOFF_MULTIPLIER = 1.5;
+    @Getter
+    private final long minDelay;
+    @Getter
+    private final long maxDelay;
+    @Getter
+    private long delay;
+    @Getter
+    private long lastActivity;
+    private boolean started = false;
+
+    /**
+     * Creates a new AdaptivePollInterval
+     *
+     * @param minDelay     Long the shortest delay in milliseconds, used after activity
+     * @param maxDelay     Long the longest delay in milliseconds, used when quiet
+     * @param lastActivity Long the Unix time in milliseconds of the last known activity
+     */
+    public AdaptivePollInterval(long minDelay, long maxDelay, long lastActivity) {
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.delay = minDelay;
+        this.lastActivity = lastActivity;
+    }
+
+    /**
+     * Returns the delay imposed on every poller by the shared request budget
+     *
+     * @return Long the delay in milliseconds
+     */
+    public static long getBudgetDelay() {
+        return RedditHook.getRateLimiter().getRequestInterval() * Math.max(1, activePollers.get());
+    }
+
+    /**
+     * Registers this interval against the shared request budget
+     */
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            activePollers.incrementAndGet();
+        }
+    }
+
+    /**
+     * Releases this interval's share of the request budget
+     */
+    public synchronized void stop() {
+        if (started) {
+            started = false;
+            activePollers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the delay before the poller should next call Reddit
+     *
+     * @return Long the delay in milliseconds
+     */
+    public long getNextDelay() {
+        return Math.max(delay, getBudgetDelay());
+    }
+
+    /**
+     * Records activity, resetting the delay to the minimum
+     *
+     * @param time Long the Unix time in milliseconds of the activity
+     */
+    public void onActivity(long time) {
+        lastActivity = Math.max(lastActivity, time);
+        delay = minDelay;
+    }
+
+    /**
+     * Records a poll which found nothing new, backing off the delay
+     */
+    public void onIdle() {
+        delay = Math.min(maxDelay, (long) (delay * BACKOFF_MULTIPLIER));
+    }
+
+    /**
+     * Returns how long it has been since the last activity
+     *
+     * @return Long the idle time in milliseconds
+     */
+    public long getIdleTime() {
+        return System.currentTimeMillis() - lastActivity;
+    }
+}
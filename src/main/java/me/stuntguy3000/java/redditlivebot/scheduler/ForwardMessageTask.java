@@ -24,23 +24,149 @@
 
 package me.stuntguy3000.java.redditlivebot.scheduler;
 
-import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
+import me.stuntguy3000.java.redditlivebot.handler.DeliveryHandler;
+import me.stuntguy3000.java.redditlivebot.handler.DeliveryKeyHandler;
 import me.stuntguy3000.java.redditlivebot.hook.TelegramHook;
-import pro.zackpollard.telegrambot.api.chat.Chat;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
+import me.stuntguy3000.java.redditlivebot.object.telegram.TelegramResponse;
 import pro.zackpollard.telegrambot.api.chat.message.Message;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
 /**
+ * Forwards a message to a single chat
+ * <p>Only the IDs of the message are kept, so a task can be written to disk and restored. A task
+ * created with text sends that text instead, which is how digests are delivered.</p>
+ * <p>Every task carries the sequenced live thread updates it delivers, a digest carries all of
+ * the updates it combines. Their sequence numbers are written to the outbox with the task and
+ * checked by the DeliveryHandler once the task completes.</p>
+ * <p>A delivery which Telegram has already acknowledged for its chat, according to the
+ * DeliveryKeyHandler, completes without being sent again.</p>
+ *
  * @author stuntguy3000
  */
-@AllArgsConstructor
+@Getter
 public class ForwardMessageTask implements Runnable {
 
-    private final Message message;
     private final String chatID;
+    private final String fromChatID;
+    private final long messageID;
+    private final LiveThreadUpdate update;
+    private final String text;
+    private final List<LiveThreadUpdate> updates;
+    private int attempts = 0;
+    @Setter
+    private long outboxID = 0;
+
+    public ForwardMessageTask(Message message, String chatID, LiveThreadUpdate update) {
+        this.chatID = chatID;
+        this.fromChatID = message.getChat().getId();
+        this.messageID = message.getMessageId();
+        this.update = update;
+        this.text = null;
+        this.updates = null;
+    }
+
+    public ForwardMessageTask(String chatID, String text, List<LiveThreadUpdate> updates) {
+        this(chatID, null, 0, updates.get(updates.size() - 1), text, updates);
+    }
+
+    private ForwardMessageTask(String chatID, String fromChatID, long messageID, LiveThreadUpdate update, String text, List<LiveThreadUpdate> updates) {
+        this.chatID = chatID;
+        this.fromChatID = fromChatID;
+        this.messageID = messageID;
+        this.update = update;
+        this.text = text;
+        this.updates = updates;
+    }
 
     @Override
     public void run() {
-        Chat chat = TelegramHook.getBot().getChat(chatID);
-        message.forwardMessage(chat);
+        DeliveryHandler deliveryHandler = RedditLiveBot.instance.getDeliveryHandler();
+        DeliveryKeyHandler deliveryKeyHandler = RedditLiveBot.instance.getDeliveryKeyHandler();
+
+        // A replayed or repeated delivery which already arrived
+        if (deliveryKeyHandler.isDelivered(this)) {
+            deliveryHandler.complete(this);
+            return;
+        }
+
+        TelegramResponse response;
+
+        // Every outcome must complete or retry the delivery, otherwise the chat's mailbox stalls
+        try {
+            response = text == null
+                    ? TelegramHook.forwardMessage(chatID, fromChatID, messageID) : TelegramHook.sendMessage(chatID, text);
+        } catch (RuntimeException e) {
+            response = null;
+        }
+
+        if (response == null) {
+            deliveryHandler.retryWithBackoff(this, "no response");
+        } else if (response.isOk()) {
+            deliveryKeyHandler.record(this);
+            deliveryHandler.complete(this);
+        } else if (response.isRateLimited()) {
+            deliveryHandler.retry(this, response.getRetryAfter());
+        } else if (response.getMigrateToChatID() != null) {
+            String newChatID = response.getMigrateToChatID();
+
+            // A supergroup which was already subscribed receives its own copy of the update
+            if (RedditLiveBot.instance.getSubscriptionHandler().migrateChat(chatID, newChatID)) {
+                deliveryHandler.redeliver(new ForwardMessageTask(newChatID, fromChatID, messageID, update, text, updates));
+            }
+
+            deliveryHandler.complete(this);
+        } else if (response.isChatUnavailable()) {
+            RedditLiveBot.instance.getSubscriptionHandler().unsubscribeChat(chatID);
+            deliveryHandler.deadLetter(this, "unsubscribed: " + response.getDescription());
+        } else if (response.isTransient()) {
+            deliveryHandler.retryWithBackoff(this, response.getDescription());
+        } else {
+            deliveryHandler.deadLetter(this, response.getDescription());
+        }
+    }
+
+    /**
+     * Returns the IDs of the live thread updates this delivery carries
+     *
+     * @return List the update IDs, empty if the message is not a live thread update
+     */
+    public List<UUID> getUpdateIDs() {
+        List<UUID> updateIDs = new ArrayList<>();
+
+        for (LiveThreadUpdate carried : getUpdates()) {
+            updateIDs.add(carried.getData().getId());
+        }
+
+        return updateIDs;
+    }
+
+    /**
+     * Returns the sequenced live thread updates this delivery carries
+     *
+     * @return List the updates in stream order, empty if the message is not a live thread update
+     */
+    public List<LiveThreadUpdate> getUpdates() {
+        if (updates != null) {
+            return updates;
+        }
+
+        return update == null ? Collections.emptyList() : Collections.singletonList(update);
+    }
+
+    /**
+     * Counts a failed attempt of this delivery
+     *
+     * @return Integer the amount of failed attempts so far
+     */
+    public int incrementAttempts() {
+        return ++attempts;
     }
 }
@@ -27,91 +27,211 @@ package me.stuntguy3000.java.redditlivebot.scheduler;
 import lombok.Data;
 import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
 import me.stuntguy3000.java.redditlivebot.handler.RedditHandler;
+import me.stuntguy3000.java.redditlivebot.hook.LiveThreadSocket;
+import me.stuntguy3000.java.redditlivebot.hook.RedditRateLimitException;
 import me.stuntguy3000.java.redditlivebot.object.Lang;
-import me.stuntguy3000.java.redditlivebot.object.reddit.LiveThread;
-import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildren;
+import me.stuntguy3000.java.redditlivebot.object.reddit.LiveThreadAbout;
 import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildrenData;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
 
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 // @author Luke Anderson | stuntguy3000
 @Data
-public class LiveThreadBroadcasterTask extends TimerTask {
+public class LiveThreadBroadcasterTask implements Runnable {
+    private static final long INACTIVITY_TIMEOUT = TimeUnit.HOURS.toMillis(6);
+    private static final int POSTED_WINDOW = 512;
+    private static final long SOCKET_TIMEOUT = 5 * 1000;
     private final RedditLiveBot plugin;
     private final String threadID;
     private long lastPost = -1;
     private LiveThreadChildrenData lastActualPost = null;
-    private List<UUID> alreadyPosted = new ArrayList<>();
+    private volatile long lastForwardedPost;
+    private final LiveThreadUpdateStream updateStream;
+    private LiveThreadSocket socket;
+    private long nextSocketAttempt = 0;
+    private AdaptivePollInterval pollInterval;
+    private long rateLimitDelay = 0;
 
     public LiveThreadBroadcasterTask(String threadID, Long lastPost) {
         this.lastPost = lastPost;
         this.plugin = RedditLiveBot.instance;
         this.threadID = threadID;
+        this.updateStream = new LiveThreadUpdateStream(threadID, POSTED_WINDOW);
 
-        new Timer().schedule(this, 0, 3 * 1000);
+        // Updates delivered before a restart may share the second of lastPost, the journal knows which
+        plugin.getDeliveryJournalHandler().replay(threadID, updateStream);
+        if (updateStream.getLastPost() > this.lastPost) {
+            this.lastPost = updateStream.getLastPost();
+        }
+
+        lastForwardedPost = this.lastPost;
+
+        pollInterval = new AdaptivePollInterval(3 * 1000, 30 * 1000,
+                this.lastPost == -1 ? System.currentTimeMillis() : this.lastPost * 1000);
+        pollInterval.start();
     }
 
-    private void postUpdate(LiveThreadChildrenData data) {
-        if (data != null && !alreadyPosted.contains(data.getId())) {
-            lastPost = data.getCreated_utc();
-            lastActualPost = data;
-            alreadyPosted.add(data.getId());
+    /**
+     * Returns the name of this task's job in the SchedulerHandler
+     *
+     * @return String the job name
+     */
+    public String getJobName() {
+        return "LiveThread-" + threadID;
+    }
+
+    /**
+     * Sequences updates and delivers the new ones in stream order
+     *
+     * @param listing List the updates in listing order, newest first
+     */
+    private synchronized void deliver(List<LiveThreadChildrenData> listing) {
+        for (LiveThreadUpdate update : updateStream.sequence(listing)) {
+            LiveThreadChildrenData data = update.getData();
+
+            if (data.getCreated_utc() >= lastPost) {
+                lastPost = data.getCreated_utc();
+                lastActualPost = data;
+            }
 
-            RedditLiveBot.instance.getRedditHandler().postLiveThreadUpdate(data, threadID);
+            // Only journalled once posted, the channel lane posts in order so the journal stays in order
+            plugin.getRedditHandler().postLiveThreadUpdate(update).thenRun(() -> {
+                if (plugin.getRedditHandler().isFollowing(threadID)) {
+                    plugin.getDeliveryJournalHandler().record(update);
+                }
+
+                // lastPost moves on as soon as updates are sequenced, this only once they are in the outbox
+                lastForwardedPost = Math.max(lastForwardedPost, data.getCreated_utc());
+            });
         }
     }
 
-    @Override
-    public void run() {
+    /**
+     * Post an update pushed through the live thread's websocket
+     *
+     * @param data LiveThreadChildrenData the update information
+     */
+    public void postSocketUpdate(LiveThreadChildrenData data) {
+        deliver(Collections.singletonList(data));
+        pollInterval.onActivity(data.getCreated_utc() * 1000);
+    }
+
+    /**
+     * Attempts to open the live thread's websocket
+     * <p>Attempts are limited to one per minute, polling continues until the socket is open.</p>
+     */
+    private void openSocket() {
+        long now = System.currentTimeMillis();
+
+        if (now < nextSocketAttempt) {
+            return;
+        }
+
+        nextSocketAttempt = now + 60 * 1000;
+
         try {
-            LiveThread liveThread = RedditHandler.getLiveThread(threadID);
+            LiveThreadAbout about = RedditHandler.getLiveThreadAbout(threadID);
 
-            if (liveThread != null) {
-                LinkedList<LiveThreadChildrenData> updates = new LinkedList<>();
+            if (about != null && about.getData() != null && about.getData().getWebsocket_url() != null) {
+                LiveThreadSocket newSocket = new LiveThreadSocket(new URI(about.getData().getWebsocket_url()), threadID,
+                        this::postSocketUpdate, () -> plugin.getRedditHandler().unfollowLiveThread(threadID, false));
 
-                for (LiveThreadChildren liveThreadChild : liveThread.getData().getChildren()) {
-                    LiveThreadChildrenData data = liveThreadChild.getData();
+                // Polling carries on if the handshake does not complete in time
+                if (newSocket.open(SOCKET_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    socket = newSocket;
+                }
+            }
+        } catch (Exception e) {
+            Lang.sendDebug("Unable to open websocket for %s: %s", threadID, e.getMessage());
+        }
+    }
 
-                    if (!alreadyPosted.contains(data.getId()) && data.getCreated_utc() > lastPost) {
-                        updates.add(data);
+    /**
+     * Stop broadcasting this live thread
+     */
+    public void cancel() {
+        pollInterval.stop();
+        plugin.getSchedulerHandler().cancel(getJobName());
+
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            poll();
+        } finally {
+            // A poll skipped for the rate limit is retried as soon as the budget allows it
+            long delay = rateLimitDelay > 0 ? rateLimitDelay : pollInterval.getNextDelay();
+            rateLimitDelay = 0;
+            plugin.getSchedulerHandler().reschedule(getJobName(), delay);
+        }
+    }
+
+    private void poll() {
+        try {
+            if (plugin.getConfigHandler().getBotSettings().getLiveThreadWebSocket()) {
+                // Updates are pushed while the socket is open
+                if (socket != null && socket.isOpen()) {
+                    if (pollInterval.getIdleTime() > INACTIVITY_TIMEOUT) {
+                        plugin.getRedditHandler().unfollowLiveThread(threadID, false);
                     }
+                    return;
                 }
 
+                openSocket();
+            }
 
-                if (lastPost == -1) {
-                    LiveThreadChildrenData lastUpdate = updates.get(0);
+            // The stream knows the newest update delivered, including before a restart
+            List<LiveThreadChildrenData> newUpdates = RedditHandler.getLiveThreadUpdates(threadID, updateStream.getLastID(), lastPost);
 
-                    long secs = (new Date().getTime()) / 1000;
+            // Nothing is delivered unless the updates reach back to the cursor
+            if (newUpdates == null) {
+                pollInterval.onIdle();
+                return;
+            }
 
-                    // Older than 6 hours?
-                    if ((secs - lastUpdate.getCreated_utc()) > 21600) {
-                        plugin.getRedditHandler().unfollowLiveThread(false);
-                    }
+            LinkedList<LiveThreadChildrenData> updates = new LinkedList<>();
 
-                    postUpdate(lastUpdate);
-                } else {
-                    if (updates.isEmpty()) {
-                        long secs = (new Date().getTime()) / 1000;
+            for (LiveThreadChildrenData data : newUpdates) {
+                if (!updateStream.contains(data.getId())) {
+                    updates.add(data);
+                }
+            }
 
-                        // Older than 6 hours?
-                        if ((secs - lastPost) > 21600) {
-                            plugin.getRedditHandler().unfollowLiveThread(false);
-                        }
-                    } else {
-                        TreeMap<Long, LiveThreadChildrenData> sortedData = new TreeMap<>();
+            if (lastPost == -1 && !updates.isEmpty()) {
+                LiveThreadChildrenData lastUpdate = updates.get(0);
+                pollInterval.onActivity(lastUpdate.getCreated_utc() * 1000);
 
-                        for (LiveThreadChildrenData data : updates) {
-                            sortedData.put(data.getCreated_utc(), data);
-                        }
+                if (pollInterval.getIdleTime() > INACTIVITY_TIMEOUT) {
+                    plugin.getRedditHandler().unfollowLiveThread(threadID, false);
+                }
 
-                        sortedData.values().forEach(this::postUpdate);
+                deliver(Collections.singletonList(lastUpdate));
+            } else {
+                if (updates.isEmpty()) {
+                    pollInterval.onIdle();
+
+                    if (pollInterval.getIdleTime() > INACTIVITY_TIMEOUT) {
+                        plugin.getRedditHandler().unfollowLiveThread(threadID, false);
                     }
+                } else {
+                    deliver(updates);
+                    pollInterval.onActivity(lastPost * 1000);
                 }
             }
+        } catch (RedditRateLimitException e) {
+            rateLimitDelay = e.getRetryAfter();
         } catch (Exception e) {
+            pollInterval.onIdle();
             Lang.sendDebug("Exception Caught: %s", e.getMessage());
             e.printStackTrace();
         }
     }
 }
-    
\ No newline at end of file
@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.scheduler;
+
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildrenData;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Turns the updates read from a live thread into an ordered stream
+ * <p>Updates are ordered by the time they were posted, updates posted in the same second keep
+ * the order of the listing. Each update not seen before is given the next sequence number, so
+ * every later stage receives the updates in one deterministic order without gaps.</p>
+ *
+ * @author stuntguy3000
+ */
+public class LiveThreadUpdateStream {
+    private final String threadID;
+    private final PostedUpdateWindow posted;
+    private long lastSequence = 0;
+    private long lastPost = -1;
+    private UUID lastID = null;
+
+    /**
+     * Creates a new LiveThreadUpdateStream
+     *
+     * @param threadID String the live thread's ID
+     * @param window   Integer the amount of update IDs remembered for deduplication
+     */
+    public LiveThreadUpdateStream(String threadID, int window) {
+        this.threadID = threadID;
+        this.posted = new PostedUpdateWindow(window);
+    }
+
+    /**
+     * Orders and sequences updates read from the live thread
+     *
+     * @param listing List the updates in listing order, newest first
+     *
+     * @return List the updates not seen before, in stream order
+     */
+    public synchronized List<LiveThreadUpdate> sequence(List<LiveThreadChildrenData> listing) {
+        List<LiveThreadChildrenData> ordered = new ArrayList<>(listing);
+
+        // The listing is newest first, reversing it before the stable sort breaks ties by listing position
+        Collections.reverse(ordered);
+        ordered.sort(Comparator.comparingLong(LiveThreadChildrenData::getCreated_utc));
+
+        List<LiveThreadUpdate> updates = new ArrayList<>();
+
+        for (LiveThreadChildrenData data : ordered) {
+            if (data == null || !posted.add(data.getId(), data.getCreated_utc())) {
+                continue;
+            }
+
+            lastPost = Math.max(lastPost, data.getCreated_utc());
+            lastID = data.getId();
+            updates.add(new LiveThreadUpdate(threadID, ++lastSequence, data));
+        }
+
+        posted.evictBefore(lastPost);
+        return updates;
+    }
+
+    /**
+     * Returns if an update has already been sequenced
+     *
+     * @param id UUID the update's ID
+     *
+     * @return true if the update was sequenced
+     */
+    public synchronized boolean contains(UUID id) {
+        return posted.contains(id);
+    }
+
+    /**
+     * Restores an update delivered before a restart
+     *
+     * @param id       UUID the update's ID
+     * @param posted   Long the Unix time the update was posted at
+     * @param sequence Long the update's sequence number
+     */
+    public synchronized void resume(UUID id, long posted, long sequence) {
+        this.posted.add(id, posted);
+        this.lastPost = Math.max(lastPost, posted);
+
+        if (sequence >= lastSequence) {
+            this.lastSequence = sequence;
+            this.lastID = id;
+        }
+    }
+
+    /**
+     * Returns the amount of update IDs remembered for deduplication
+     *
+     * @return Integer the window size
+     */
+    public int getWindow() {
+        return posted.getCapacity();
+    }
+
+    /**
+     * Returns the sequence number of the newest update
+     *
+     * @return Long the sequence number, or 0 if nothing was sequenced
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Returns the ID of the newest sequenced update
+     *
+     * @return UUID the update's ID, or null if nothing was sequenced
+     */
+    public synchronized UUID getLastID() {
+        return lastID;
+    }
+
+    /**
+     * Returns the Unix time of the newest sequenced update
+     *
+     * @return Long the Unix time, or -1 if nothing was sequenced
+     */
+    public synchronized long getLastPost() {
+        return lastPost;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.scheduler;
+
+import java.util.UUID;
+
+/**
+ * A bounded set of recently posted live thread update IDs
+ * <p>IDs are stored as two primitive longs in an open addressing hash table, so lookups are O(1)
+ * no matter how long a thread runs. A ring keeps the insertion order, once the window is full the
+ * oldest ID is evicted, IDs posted before the lastPost watermark can be evicted early as the
+ * poll cursor never returns them again.</p>
+ *
+ * @author stuntguy3000
+ */
+public class PostedUpdateWindow {
+    private final int capacity;
+    private final int mask;
+    private final long[] tableMost;
+    private final long[] tableLeast;
+    private final boolean[] tableUsed;
+    private final long[] ringMost;
+    private final long[] ringLeast;
+    private final long[] ringPosted;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Creates a new PostedUpdateWindow
+     *
+     * @param capacity Integer the maximum amount of IDs remembered
+     */
+    public PostedUpdateWindow(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+
+        this.capacity = capacity;
+        this.mask = tableSize - 1;
+        this.tableMost = new long[tableSize];
+        this.tableLeast = new long[tableSize];
+        this.tableUsed = new boolean[tableSize];
+        this.ringMost = new long[capacity];
+        this.ringLeast = new long[capacity];
+        this.ringPosted = new long[capacity];
+    }
+
+    /**
+     * Returns if an update ID is in the window
+     *
+     * @param id UUID the update's ID
+     *
+     * @return true if the ID is in the window
+     */
+    public boolean contains(UUID id) {
+        return find(id.getMostSignificantBits(), id.getLeastSignificantBits()) >= 0;
+    }
+
+    /**
+     * Adds an update ID to the window, evicting the oldest ID if the window is full
+     *
+     * @param id     UUID the update's ID
+     * @param posted Long the Unix time the update was posted at
+     *
+     * @return true if the ID was not already in the window
+     */
+    public boolean add(UUID id, long posted) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+
+        if (find(most, least) >= 0) {
+            return false;
+        }
+
+        if (size == capacity) {
+            evictOldest();
+        }
+
+        int slot = slot(most, least);
+        while (tableUsed[slot]) {
+            slot = (slot + 1) & mask;
+        }
+
+        tableMost[slot] = most;
+        tableLeast[slot] = least;
+        tableUsed[slot] = true;
+
+        int tail = (head + size) % capacity;
+        ringMost[tail] = most;
+        ringLeast[tail] = least;
+        ringPosted[tail] = posted;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Evicts the oldest IDs which were posted before a watermark
+     * <p>Eviction stops at the first ID posted at or after the watermark.</p>
+     *
+     * @param watermark Long the Unix time of the last post
+     */
+    public void evictBefore(long watermark) {
+        while (size > 0 && ringPosted[head] < watermark) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * Returns the maximum amount of IDs remembered
+     *
+     * @return Integer the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the amount of IDs in the window
+     *
+     * @return Integer the amount of IDs
+     */
+    public int size() {
+        return size;
+    }
+
+    private void evictOldest() {
+        int slot = find(ringMost[head], ringLeast[head]);
+
+        if (slot >= 0) {
+            remove(slot);
+        }
+
+        head = (head + 1) % capacity;
+        size--;
+    }
+
+    private int find(long most, long least) {
+        int slot = slot(most, least);
+
+        while (tableUsed[slot]) {
+            if (tableMost[slot] == most && tableLeast[slot] == least) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    // Backward shift deletion keeps every probe chain intact without tombstones
+    private void remove(int slot) {
+        tableUsed[slot] = false;
+
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+
+            if (!tableUsed[next]) {
+                return;
+            }
+
+            int home = slot(tableMost[next], tableLeast[next]);
+            boolean movable = next > slot ? (home <= slot || home > next) : (home <= slot && home > next);
+
+            if (movable) {
+                tableMost[slot] = tableMost[next];
+                tableLeast[slot] = tableLeast[next];
+                tableUsed[slot] = true;
+                tableUsed[next] = false;
+                slot = next;
+            }
+        }
+    }
+
+    int slot(long most, long least) {
+        long hash = (most ^ (least * 0x9E3779B97F4A7C15L)) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
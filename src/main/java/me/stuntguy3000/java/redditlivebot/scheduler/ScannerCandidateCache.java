@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.scheduler;
+
+import me.stuntguy3000.java.redditlivebot.object.reddit.ScannerCandidate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the scanner's verdict on recently checked live threads
+ * <p>Entries expire after the TTL and the least recently used entry is evicted once the cache
+ * is full.</p>
+ *
+ * @author stuntguy3000
+ */
+public class ScannerCandidateCache {
+    private final long ttl;
+    private final LinkedHashMap<String, ScannerCandidate> candidates;
+
+    /**
+     * Creates a new ScannerCandidateCache
+     *
+     * @param capacity Integer the maximum amount of entries
+     * @param ttl      Long the time in milliseconds before an entry expires
+     */
+    public ScannerCandidateCache(int capacity, long ttl) {
+        this.ttl = ttl;
+        this.candidates = new LinkedHashMap<String, ScannerCandidate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ScannerCandidate> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached verdict of a thread
+     *
+     * @param threadID String the thread's ID
+     *
+     * @return ScannerCandidate the verdict, or null if not cached or expired
+     */
+    public synchronized ScannerCandidate get(String threadID) {
+        ScannerCandidate candidate = candidates.get(threadID);
+
+        if (candidate != null && System.currentTimeMillis() - candidate.getCheckedAt() > ttl) {
+            candidates.remove(threadID);
+            return null;
+        }
+
+        return candidate;
+    }
+
+    /**
+     * Caches the verdict of a thread
+     *
+     * @param candidate ScannerCandidate the verdict
+     */
+    public synchronized void put(ScannerCandidate candidate) {
+        candidates.put(candidate.getThreadID(), candidate);
+    }
+
+    /**
+     * Returns the amount of cached verdicts
+     *
+     * @return Integer the amount of entries
+     */
+    public synchronized int size() {
+        return candidates.size();
+    }
+}
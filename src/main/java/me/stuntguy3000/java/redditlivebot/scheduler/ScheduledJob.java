@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.scheduler;
+
+import lombok.Getter;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a named, repeating job run by the SchedulerHandler
+ * <p>Each run schedules the next one using the current period, so the period can be changed
+ * while the job is running. Lateness and run duration of every run are recorded.</p>
+ *
+ * @author stuntguy3000
+ */
+public class ScheduledJob {
+    @Getter
+    private final String name;
+    private final Runnable task;
+    private final ScheduledExecutorService executor;
+    @Getter
+    private volatile long period;
+    @Getter
+    private volatile long runCount;
+    @Getter
+    private volatile long lastLateness;
+    @Getter
+    private volatile long maxLateness;
+    @Getter
+    private volatile long lastDuration;
+    @Getter
+    private volatile long maxDuration;
+    private ScheduledFuture<?> future;
+    private long expectedStart;
+    private boolean running = false;
+    private boolean cancelled = false;
+
+    /**
+     * Creates a new ScheduledJob
+     *
+     * @param name     String the unique name of the job
+     * @param task     Runnable the task to run
+     * @param period   Long the delay in milliseconds between the end of one run and the next
+     * @param executor ScheduledExecutorService the executor running the job
+     */
+    public ScheduledJob(String name, Runnable task, long period, ScheduledExecutorService executor) {
+        this.name = name;
+        this.task = task;
+        this.period = period;
+        this.executor = executor;
+    }
+
+    /**
+     * Schedule the next run of the job
+     *
+     * @param delay Long the delay in milliseconds
+     */
+    public synchronized void schedule(long delay) {
+        if (cancelled) {
+            return;
+        }
+
+        expectedStart = System.currentTimeMillis() + delay;
+        future = executor.schedule(this::execute, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Change the period of the job
+     * <p>A pending run is moved to the new period, a job which is currently running picks up the
+     * new period once it finishes.</p>
+     *
+     * @param period Long the new period in milliseconds
+     */
+    public synchronized void reschedule(long period) {
+        this.period = period;
+
+        if (!running && future != null && future.cancel(false)) {
+            schedule(period);
+        }
+    }
+
+    /**
+     * Cancel the job, a run in progress is allowed to finish
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Returns how late the next run is, or 0 if it is not yet due
+     *
+     * @return Long the lateness in milliseconds
+     */
+    public synchronized long getCurrentLateness() {
+        return running ? 0 : Math.max(0, System.currentTimeMillis() - expectedStart);
+    }
+
+    private void execute() {
+        long start = System.currentTimeMillis();
+
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+
+            running = true;
+            lastLateness = Math.max(0, start - expectedStart);
+            maxLateness = Math.max(maxLateness, lastLateness);
+        }
+
+        try {
+            task.run();
+        } catch (Throwable throwable) {
+            throwable.printStackTrace();
+        } finally {
+            lastDuration = System.currentTimeMillis() - start;
+            maxDuration = Math.max(maxDuration, lastDuration);
+            runCount++;
+
+            synchronized (this) {
+                running = false;
+                schedule(period);
+            }
+        }
+    }
+}
@@ -27,55 +27,245 @@ package me.stuntguy3000.java.redditlivebot.scheduler;
 import me.stuntguy3000.java.redditlivebot.RedditLiveBot;
 import me.stuntguy3000.java.redditlivebot.handler.RedditHandler;
 import me.stuntguy3000.java.redditlivebot.object.Lang;
-import me.stuntguy3000.java.redditlivebot.object.reddit.LiveThread;
+import me.stuntguy3000.java.redditlivebot.object.config.BotSettings;
+import me.stuntguy3000.java.redditlivebot.object.reddit.RequestPriority;
+import me.stuntguy3000.java.redditlivebot.object.reddit.ScannerCandidate;
 import me.stuntguy3000.java.redditlivebot.object.reddit.Subreddit;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadAboutData;
 import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildrenData;
 import me.stuntguy3000.java.redditlivebot.object.reddit.subreddit.SubredditChildren;
 import me.stuntguy3000.java.redditlivebot.object.reddit.subreddit.SubredditChildrenData;
 
-import java.util.Date;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // @author Luke Anderson | stuntguy3000
-public class SubredditScannerTask extends TimerTask {
+public class SubredditScannerTask implements Runnable {
+    private static final String JOB_NAME = "SubredditScanner";
+    private static final int DISCOVERY_CONCURRENCY = 4;
+    private static final ExecutorService DISCOVERY_EXECUTOR = createDiscoveryExecutor();
+    private final ScannerCandidateCache candidateCache = new ScannerCandidateCache(200, TimeUnit.MINUTES.toMillis(5));
+    private final AdaptivePollInterval pollInterval;
+    private long lastScannedPost = -1;
+
     public SubredditScannerTask() {
-        new Timer().schedule(this, 0, 15 * 1000);
+        pollInterval = new AdaptivePollInterval(15 * 1000, 60 * 1000, System.currentTimeMillis());
+        pollInterval.start();
+
+        RedditLiveBot.instance.getSchedulerHandler().schedule(JOB_NAME, this, 0, pollInterval.getNextDelay());
+    }
+
+    private static ExecutorService createDiscoveryExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        return Executors.newFixedThreadPool(DISCOVERY_CONCURRENCY, runnable -> {
+            Thread thread = new Thread(runnable, "ScannerDiscovery-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stop scanning for new live threads
+     */
+    public void cancel() {
+        pollInterval.stop();
+        RedditLiveBot.instance.getSchedulerHandler().cancel(JOB_NAME);
     }
 
     @Override
     public void run() {
+        try {
+            scan();
+        } finally {
+            RedditLiveBot.instance.getSchedulerHandler().reschedule(JOB_NAME, pollInterval.getNextDelay());
+        }
+    }
+
+    private void scan() {
         Lang.sendDebug("Checking for new live threads...");
 
         try {
-            Subreddit subreddit = RedditHandler.getSubreddit("live");
+            boolean activity = false;
+            Map<String, SubredditChildrenData> candidates = new LinkedHashMap<>();
 
-            if (subreddit != null) {
-                for (SubredditChildren threadChild : subreddit.getData().getChildren()) {
+            for (Subreddit listing : fetchSources()) {
+                for (SubredditChildren threadChild : listing.getData().getChildren()) {
                     SubredditChildrenData threadData = threadChild.getData();
 
-                    if (threadData != null && threadData.getMedia() != null) {
-                        long secs = (new Date().getTime()) / 1000;
-                        String threadID = threadData.getMedia().getEvent_id();
+                    if (threadData == null) {
+                        continue;
+                    }
+
+                    if (threadData.getCreated_utc() > lastScannedPost) {
+                        lastScannedPost = threadData.getCreated_utc();
+                        activity = true;
+                    }
+
+                    String threadID = threadData.getLiveThreadID();
 
-                        LiveThread liveThreadData = RedditHandler.getLiveThread(threadID);
-                        if (liveThreadData != null) {
-                            LiveThreadChildrenData lastPost = liveThreadData.getData().getChildren().get(0).getData();
+                    if (threadID == null || RedditLiveBot.instance.getRedditHandler().isFollowing(threadID)) {
+                        continue;
+                    }
 
-                            // Less than 1 hour old
-                            if ((secs - lastPost.getCreated_utc()) < 3600) {
-                                RedditLiveBot.instance.getAdminControlHandler().postNewLiveThread(threadData, threadID);
-                            }
-                        }
+                    // Skip threads checked recently whose listing has not changed
+                    ScannerCandidate cached = candidateCache.get(threadID.toLowerCase());
+                    if (cached != null && cached.matches(threadData)) {
+                        continue;
                     }
+
+                    // The same thread is often linked from several sources, only check it once
+                    candidates.putIfAbsent(threadID.toLowerCase(), threadData);
                 }
             }
 
+            if (!candidates.isEmpty()) {
+                checkCandidates(candidates);
+            }
+
+            if (activity) {
+                pollInterval.onActivity(System.currentTimeMillis());
+            } else {
+                pollInterval.onIdle();
+            }
+
             Lang.sendDebug("No new posted live threads.");
         } catch (Exception e) {
+            pollInterval.onIdle();
             Lang.sendDebug("Exception Caught: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    /**
+     * Fetches every configured discovery source in parallel
+     *
+     * @return List the listings which were fetched successfully
+     */
+    private List<Subreddit> fetchSources() {
+        BotSettings settings = RedditLiveBot.instance.getConfigHandler().getBotSettings();
+        int limit = Math.max(1, settings.getDiscoveryLimit());
+        Map<String, Callable<Subreddit>> sources = new LinkedHashMap<>();
+
+        for (String subreddit : settings.getDiscoverySubreddits()) {
+            sources.put("r/" + subreddit, () -> RedditHandler.getSubreddit(subreddit, limit));
+        }
+
+        for (String query : settings.getDiscoveryQueries()) {
+            sources.put("search \"" + query + "\"", () -> RedditHandler.searchPosts(query, limit));
+        }
+
+        return fetchAll(sources);
+    }
+
+    /**
+     * Fetches listings on the discovery pool at the same time
+     * <p>Sources which fail or are deferred by the rate limiter are skipped, the rest are
+     * returned in the order given.</p>
+     *
+     * @param sources Map the requests to make, keyed by a description of their source
+     *
+     * @return List the listings which were fetched successfully
+     */
+    static List<Subreddit> fetchAll(Map<String, Callable<Subreddit>> sources) {
+        List<CompletableFuture<Subreddit>> fetches = new ArrayList<>();
+
+        for (Map.Entry<String, Callable<Subreddit>> source : sources.entrySet()) {
+            fetches.add(fetchSource(source.getKey(), source.getValue()));
+        }
+
+        List<Subreddit> listings = new ArrayList<>();
+
+        for (CompletableFuture<Subreddit> fetch : fetches) {
+            Subreddit listing = fetch.join();
+
+            if (listing != null && listing.getData() != null) {
+                listings.add(listing);
+            }
+        }
+
+        return listings;
+    }
+
+    private static CompletableFuture<Subreddit> fetchSource(String source, Callable<Subreddit> request) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return request.call();
+            } catch (Exception e) {
+                Lang.sendDebug("Unable to fetch " + source + ": " + e.getMessage());
+                return null;
+            }
+        }, DISCOVERY_EXECUTOR);
+    }
+
+    /**
+     * Checks which candidate live threads are still active and posts them to the admin chat
+     * <p>All candidates are resolved with a single by_id request, only threads which are still
+     * live have their newest update fetched, in parallel.</p>
+     *
+     * @param candidates Map the posts linking to each candidate thread, keyed by thread ID
+     */
+    private void checkCandidates(Map<String, SubredditChildrenData> candidates) throws Exception {
+        Map<String, LiveThreadAboutData> abouts = RedditHandler.getLiveThreadAbouts(candidates.keySet(), RequestPriority.SCANNER);
+
+        if (abouts == null) {
+            return;
+        }
+
+        long secs = (new Date().getTime()) / 1000;
+        List<CompletableFuture<Void>> lookups = new ArrayList<>();
+
+        for (Map.Entry<String, SubredditChildrenData> candidate : candidates.entrySet()) {
+            String threadID = candidate.getKey();
+            LiveThreadAboutData about = abouts.get(threadID);
+
+            SubredditChildrenData threadData = candidate.getValue();
+
+            if (about == null || !"live".equals(about.getState())) {
+                cacheVerdict(threadID, threadData, false, -1);
+                continue;
+            }
+
+            lookups.add(CompletableFuture.runAsync(() -> {
+                try {
+                    LiveThreadChildrenData lastPost = RedditHandler.getLatestLiveThreadUpdate(threadID, RequestPriority.SCANNER);
+
+                    if (lastPost == null) {
+                        return;
+                    }
+
+                    // Less than 1 hour old
+                    boolean active = (secs - lastPost.getCreated_utc()) < 3600;
+                    cacheVerdict(threadID, threadData, active, lastPost.getCreated_utc());
+
+                    if (active) {
+                        RedditLiveBot.instance.getAdminControlHandler().postNewLiveThread(threadData, threadID);
+                    }
+                } catch (Exception e) {
+                    Lang.sendDebug("Exception Caught: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }, DISCOVERY_EXECUTOR));
+        }
+
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture[lookups.size()])).join();
+    }
+
+    /**
+     * Caches the verdict of a thread
+     *
+     * @param threadID   String the thread's ID
+     * @param threadData SubredditChildrenData the post linking to the thread
+     * @param active     Boolean true if the thread was posted to the admin chat
+     * @param lastUpdate Long the Unix time of the thread's newest update, or -1
+     */
+    private void cacheVerdict(String threadID, SubredditChildrenData threadData, boolean active, long lastUpdate) {
+        candidateCache.put(new ScannerCandidate(threadID, threadData.getTitle(), threadData.getScore(),
+                active, lastUpdate, System.currentTimeMillis()));
+    }
 }
-    
\ No newline at end of file
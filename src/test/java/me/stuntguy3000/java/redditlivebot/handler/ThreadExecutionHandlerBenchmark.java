@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.handler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the fan-out wall time and memory of the platform thread stripes with the virtual
+ * thread delivery mode
+ * <p>Every simulated delivery stands in for TelegramHook.forwardMessage and blocks for a fixed
+ * latency instead of calling the Telegram API. The rate limiter is left out, so the executors
+ * themselves are measured. The platform stripes run with the default deliveryThreads and with as
+ * many threads as the virtual mode's semaphore allows.</p>
+ * <p>Virtual threads need Java 21 or newer, on older JDKs the virtual mode falls back to the
+ * stripes. Run with: java -cp target/classes:target/test-classes
+ * me.stuntguy3000.java.redditlivebot.handler.ThreadExecutionHandlerBenchmark [latency ms]</p>
+ *
+ * @author stuntguy3000
+ */
+public class ThreadExecutionHandlerBenchmark {
+    private static final int DEFAULT_THREADS = 8;
+    private static final int VIRTUAL_CONCURRENCY = 30;
+    private static final int[] SUBSCRIBERS = {10000, 100000};
+    private static final long SAMPLE_INTERVAL = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        long latency = args.length > 0 ? Long.parseLong(args[0]) : 1;
+
+        // Warm up every mode before measuring
+        run(DEFAULT_THREADS, false, 2000, latency);
+        run(VIRTUAL_CONCURRENCY, true, 2000, latency);
+
+        System.out.printf("%nSimulated send latency: %d ms%n", latency);
+        System.out.printf("%-12s %-22s %12s %16s %16s%n", "subscribers", "mode", "wall ms", "peak heap MB", "peak threads");
+
+        for (int subscribers : SUBSCRIBERS) {
+            print(subscribers, "platform x" + DEFAULT_THREADS, run(DEFAULT_THREADS, false, subscribers, latency));
+            print(subscribers, "platform x" + VIRTUAL_CONCURRENCY, run(VIRTUAL_CONCURRENCY, false, subscribers, latency));
+            print(subscribers, "virtual x" + VIRTUAL_CONCURRENCY, run(1, true, subscribers, latency));
+        }
+    }
+
+    private static void print(int subscribers, String mode, long[] result) {
+        System.out.printf("%-12d %-22s %12d %16.1f %16d%n", subscribers, mode, result[0], result[1] / 1048576.0, result[2]);
+    }
+
+    // Queues one delivery per subscriber and returns the wall time, peak heap growth and peak platform threads
+    private static long[] run(int threads, boolean virtual, int subscribers, long latency) throws InterruptedException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Runtime runtime = Runtime.getRuntime();
+
+        System.gc();
+        long baseline = runtime.totalMemory() - runtime.freeMemory();
+        AtomicLong peakHeap = new AtomicLong(baseline);
+        CountDownLatch done = new CountDownLatch(subscribers);
+
+        Thread sampler = new Thread(() -> {
+            while (done.getCount() > 0) {
+                peakHeap.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+
+        threadBean.resetPeakThreadCount();
+        ThreadExecutionHandler handler = new ThreadExecutionHandler(threads, virtual);
+        sampler.start();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < subscribers; i++) {
+            handler.queue(() -> {
+                try {
+                    Thread.sleep(latency);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                done.countDown();
+            });
+        }
+
+        done.await();
+        long wall = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        sampler.join();
+        handler.shutdown(TimeUnit.SECONDS.toMillis(10));
+
+        return new long[]{wall, peakHeap.get() - baseline, threadBean.getPeakThreadCount()};
+    }
+}
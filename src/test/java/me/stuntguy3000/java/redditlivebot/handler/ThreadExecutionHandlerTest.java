@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.handler;
+
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildrenData;
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadUpdate;
+import me.stuntguy3000.java.redditlivebot.scheduler.ForwardMessageTask;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ThreadExecutionHandlerTest {
+    // Not a multiple of the stripes, so handing out stripes in turn would split every chat
+    private static final int CHATS = 21;
+    private static final int MESSAGES = 50;
+
+    @Test
+    public void eachChatRunsInOrderWhileChatsRunInParallel() throws Exception {
+        ThreadExecutionHandler handler = new ThreadExecutionHandler(4, false);
+        Map<String, List<Long>> received = new HashMap<>();
+        CountDownLatch done = new CountDownLatch(CHATS * MESSAGES);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Random random = new Random(7);
+
+        // Interleave the chats so each stripe is handed messages of several chats at once
+        for (long sequence = 0; sequence < MESSAGES; sequence++) {
+            for (int chat = 0; chat < CHATS; chat++) {
+                long delay = random.nextInt(2);
+
+                handler.queue(new RecordingTask("-100" + chat, sequence, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    running.decrementAndGet();
+                }, received, done));
+            }
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        handler.shutdown(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(CHATS, received.size());
+
+        for (Map.Entry<String, List<Long>> chat : received.entrySet()) {
+            List<Long> sequences = chat.getValue();
+
+            assertEquals(MESSAGES, sequences.size());
+
+            for (int i = 0; i < MESSAGES; i++) {
+                assertEquals("message " + i + " of " + chat.getKey(), Long.valueOf(i), sequences.get(i));
+            }
+        }
+
+        assertTrue("at most " + maxRunning.get() + " chat(s) ran at once", maxRunning.get() > 1);
+    }
+
+    // Records the order its chat's messages ran in instead of sending them
+    private static class RecordingTask extends ForwardMessageTask {
+        private final Runnable send;
+        private final Map<String, List<Long>> received;
+        private final CountDownLatch done;
+
+        private RecordingTask(String chatID, long sequence, Runnable send, Map<String, List<Long>> received, CountDownLatch done) {
+            super(chatID, "update " + sequence, Collections.singletonList(new LiveThreadUpdate("thread", sequence, new LiveThreadChildrenData())));
+            this.send = send;
+            this.received = received;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            send.run();
+
+            synchronized (received) {
+                received.computeIfAbsent(getChatID(), id -> new ArrayList<>()).add(getUpdate().getSequence());
+            }
+
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import me.stuntguy3000.java.redditlivebot.object.reddit.livethread.LiveThreadChildrenData;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LiveThreadSocketTest {
+    private ReplayWebSocketServer server;
+    private LiveThreadSocket socket;
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (socket != null) {
+            socket.close();
+        }
+
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void replaysRecordedFramesInOrder() throws Exception {
+        int port = freePort();
+        server = new ReplayWebSocketServer(port, "/livethread/frames.txt");
+        server.startAndWait();
+
+        List<LiveThreadChildrenData> updates = new CopyOnWriteArrayList<>();
+        CountDownLatch complete = new CountDownLatch(1);
+        socket = new LiveThreadSocket(new URI("ws://127.0.0.1:" + port + "/live/test"), "test",
+                updates::add, complete::countDown);
+
+        assertTrue(socket.open(5, TimeUnit.SECONDS));
+        assertTrue("the complete frame was not received", complete.await(5, TimeUnit.SECONDS));
+
+        // The activity, strike and malformed frames are skipped
+        assertEquals(2, updates.size());
+        assertEquals(UUID.fromString("0b1a3c44-1130-11e6-9a52-0e5c5f1ad7e1"), updates.get(0).getId());
+        assertEquals("First update", updates.get(0).getBody());
+        assertEquals(UUID.fromString("2c7e9a10-1130-11e6-8e7b-0e6b3d4c1a33"), updates.get(1).getId());
+        assertEquals(1462296000, updates.get(1).getCreated_utc());
+    }
+
+    @Test
+    public void openFailsWhenNothingListens() throws Exception {
+        socket = new LiveThreadSocket(new URI("ws://127.0.0.1:" + freePort() + "/live/test"), "test",
+                update -> fail("no update expected"), () -> fail("no completion expected"));
+
+        assertFalse(socket.open(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void openGivesUpWhenTheHandshakeStalls() throws Exception {
+        try (ServerSocket silent = new ServerSocket(0)) {
+            // Accepts the connection but never answers the handshake
+            Thread acceptor = new Thread(() -> {
+                try (Socket ignored = silent.accept()) {
+                    Thread.sleep(5000);
+                } catch (Exception ignored) {
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            socket = new LiveThreadSocket(new URI("ws://127.0.0.1:" + silent.getLocalPort() + "/live/test"), "test",
+                    update -> fail("no update expected"), () -> fail("no completion expected"));
+
+            long start = System.currentTimeMillis();
+            assertFalse(socket.open(300, TimeUnit.MILLISECONDS));
+            assertTrue(System.currentTimeMillis() - start < 2000);
+        }
+    }
+
+    @Test
+    public void secureOpenGivesUpWhenTheTlsHandshakeStalls() throws Exception {
+        try (ServerSocket silent = new ServerSocket(0)) {
+            socket = new LiveThreadSocket(new URI("wss://127.0.0.1:" + silent.getLocalPort() + "/live/test"), "test",
+                    update -> fail("no update expected"), () -> fail("no completion expected"));
+
+            // The constructor never connects, so it can not wait on the network
+            silent.setSoTimeout(200);
+            try {
+                silent.accept().close();
+                fail("connected before open");
+            } catch (SocketTimeoutException expected) {
+            }
+
+            // The connection is accepted by the backlog, but the TLS handshake is never answered
+            long start = System.currentTimeMillis();
+            assertFalse(socket.open(300, TimeUnit.MILLISECONDS));
+            assertTrue(System.currentTimeMillis() - start < 2000);
+
+            // Once open gives up the connection is closed, releasing the socket's thread
+            silent.setSoTimeout(2000);
+            try (Socket accepted = silent.accept()) {
+                accepted.setSoTimeout(2000);
+
+                while (accepted.getInputStream().read() != -1) {
+                }
+            }
+        }
+    }
+}
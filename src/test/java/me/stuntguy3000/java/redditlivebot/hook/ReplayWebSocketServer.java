@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local stand-in for a live thread's websocket which replays recorded frames
+ * <p>Every client receives all frames of the recording, in order, as soon as it connects.</p>
+ *
+ * @author stuntguy3000
+ */
+public class ReplayWebSocketServer extends WebSocketServer {
+    private final List<String> frames;
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /**
+     * Creates a new ReplayWebSocketServer
+     *
+     * @param port      Integer the local port to listen on
+     * @param recording String the classpath resource holding one frame per line
+     */
+    public ReplayWebSocketServer(int port, String recording) throws IOException {
+        super(new InetSocketAddress("127.0.0.1", port));
+        frames = readFrames(recording);
+    }
+
+    private static List<String> readFrames(String recording) throws IOException {
+        List<String> frames = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                ReplayWebSocketServer.class.getResourceAsStream(recording), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    frames.add(line);
+                }
+            }
+        }
+
+        return frames;
+    }
+
+    /**
+     * Starts the server and waits until it accepts connections
+     */
+    public void startAndWait() throws InterruptedException {
+        start();
+
+        if (!started.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("The replay server did not start");
+        }
+    }
+
+    @Override
+    public void onStart() {
+        started.countDown();
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        for (String frame : frames) {
+            conn.send(frame);
+        }
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.hook;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RequestCoalescerTest {
+
+    @Test
+    public void concurrentCallersShareOneRequest() throws Exception {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(2000);
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> coalescer.get("thread", () -> {
+                    requests.incrementAndGet();
+                    release.await();
+                    return "page";
+                })));
+            }
+
+            // Let every caller arrive before the leading request completes
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("page", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void resultsAreReusedUntilTheyExpire() throws Exception {
+        RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>(100);
+        AtomicInteger requests = new AtomicInteger();
+
+        assertEquals(Integer.valueOf(1), coalescer.get("thread", requests::incrementAndGet));
+        assertEquals(Integer.valueOf(1), coalescer.get("thread", requests::incrementAndGet));
+
+        Thread.sleep(150);
+        assertEquals(Integer.valueOf(2), coalescer.get("thread", requests::incrementAndGet));
+    }
+
+    @Test
+    public void deferredResultsAreNotCached() throws Exception {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(2000);
+
+        assertNull(coalescer.get("thread", () -> null));
+        assertEquals("page", coalescer.get("thread", () -> "page"));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Measures the per-poll cost of deduplicating live thread updates as a thread grows
+ * <p>Every simulated poll reads a page of the ten newest updates, one of them new, and checks each
+ * against the posted IDs the way LiveThreadBroadcasterTask does. The PostedUpdateWindow is compared
+ * with the unbounded ArrayList it replaced.</p>
+ * <p>Run with: java -cp target/classes:target/test-classes
+ * me.stuntguy3000.java.redditlivebot.scheduler.PostedUpdateWindowBenchmark</p>
+ *
+ * @author stuntguy3000
+ */
+public class PostedUpdateWindowBenchmark {
+    private static final int PAGE_SIZE = 10;
+    private static final int WINDOW = 512;
+    private static final int TIMED_POLLS = 2000;
+    // Growing the ArrayList to longer threads takes minutes, its trend is clear well before
+    private static final int LIST_LIMIT = 20000;
+    private static final Random RANDOM = new Random(42);
+    private static final int[] THREAD_LENGTHS = {1000, 5000, 20000, 100000, 1000000};
+
+    public static void main(String[] args) {
+        // Warm up both implementations before measuring
+        run(new WindowDedupe(), 20000);
+        run(new ListDedupe(), 5000);
+
+        System.out.printf("%-14s %20s %20s%n", "updates", "window ns/poll", "ArrayList ns/poll");
+
+        for (int length : THREAD_LENGTHS) {
+            long window = run(new WindowDedupe(), length);
+            String list = length <= LIST_LIMIT ? String.valueOf(run(new ListDedupe(), length)) : "-";
+
+            System.out.printf("%-14d %20d %20s%n", length, window, list);
+        }
+    }
+
+    // Grows a thread to the given length, then returns the average time of the following polls
+    private static long run(Dedupe dedupe, int length) {
+        List<UUID> thread = new ArrayList<>(length + TIMED_POLLS);
+
+        for (int i = 0; i < length; i++) {
+            poll(dedupe, thread);
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < TIMED_POLLS; i++) {
+            poll(dedupe, thread);
+        }
+
+        return (System.nanoTime() - start) / TIMED_POLLS;
+    }
+
+    private static void poll(Dedupe dedupe, List<UUID> thread) {
+        thread.add(new UUID(RANDOM.nextLong(), RANDOM.nextLong()));
+        long posted = thread.size();
+
+        for (int i = Math.max(0, thread.size() - PAGE_SIZE); i < thread.size(); i++) {
+            UUID id = thread.get(i);
+
+            if (!dedupe.contains(id)) {
+                dedupe.add(id, i + 1);
+            }
+        }
+
+        dedupe.evictBefore(posted - PAGE_SIZE);
+    }
+
+    private interface Dedupe {
+        boolean contains(UUID id);
+
+        void add(UUID id, long posted);
+
+        void evictBefore(long watermark);
+    }
+
+    private static class WindowDedupe implements Dedupe {
+        private final PostedUpdateWindow window = new PostedUpdateWindow(WINDOW);
+
+        public boolean contains(UUID id) {
+            return window.contains(id);
+        }
+
+        public void add(UUID id, long posted) {
+            window.add(id, posted);
+        }
+
+        public void evictBefore(long watermark) {
+            window.evictBefore(watermark);
+        }
+    }
+
+    // The alreadyPosted list, checked twice per update and never trimmed
+    private static class ListDedupe implements Dedupe {
+        private final List<UUID> alreadyPosted = new ArrayList<>();
+
+        public boolean contains(UUID id) {
+            return alreadyPosted.contains(id) || alreadyPosted.contains(id);
+        }
+
+        public void add(UUID id, long posted) {
+            alreadyPosted.add(id);
+        }
+
+        public void evictBefore(long watermark) {
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.scheduler;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PostedUpdateWindowTest {
+
+    // Finds IDs which all hash to the last slot of the table, so their probe chain wraps to slot 0
+    private static List<UUID> idsHomedAtLastSlot(PostedUpdateWindow window, int count, int tableSize) {
+        List<UUID> ids = new ArrayList<>();
+        Random random = new Random(42);
+
+        while (ids.size() < count) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+
+            if (window.slot(id.getMostSignificantBits(), id.getLeastSignificantBits()) == tableSize - 1) {
+                ids.add(id);
+            }
+        }
+
+        return ids;
+    }
+
+    @Test
+    public void addsAndFindsIDs() {
+        PostedUpdateWindow window = new PostedUpdateWindow(8);
+        UUID id = UUID.randomUUID();
+
+        assertFalse(window.contains(id));
+        assertTrue(window.add(id, 100));
+        assertTrue(window.contains(id));
+        assertFalse("a duplicate is not added twice", window.add(id, 100));
+        assertEquals(1, window.size());
+    }
+
+    @Test
+    public void evictsTheOldestIDOnceFull() {
+        PostedUpdateWindow window = new PostedUpdateWindow(3);
+        UUID[] ids = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+
+        for (int i = 0; i < ids.length; i++) {
+            window.add(ids[i], i);
+        }
+
+        assertEquals(3, window.size());
+        assertFalse(window.contains(ids[0]));
+        assertTrue(window.contains(ids[1]));
+        assertTrue(window.contains(ids[2]));
+        assertTrue(window.contains(ids[3]));
+    }
+
+    @Test
+    public void evictBeforeStopsAtTheWatermark() {
+        PostedUpdateWindow window = new PostedUpdateWindow(8);
+        UUID early = UUID.randomUUID();
+        UUID sameSecond = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+
+        window.add(early, 10);
+        window.add(sameSecond, 20);
+        window.add(late, 30);
+        window.evictBefore(20);
+
+        assertFalse(window.contains(early));
+        assertTrue("IDs posted at the watermark are kept", window.contains(sameSecond));
+        assertTrue(window.contains(late));
+        assertEquals(2, window.size());
+    }
+
+    @Test
+    public void removalShiftsBackChainsWhichWrapAround() {
+        // A capacity of 4 uses a table of 8 slots
+        PostedUpdateWindow window = new PostedUpdateWindow(4);
+        List<UUID> ids = idsHomedAtLastSlot(window, 3, 8);
+
+        // Stored in slots 7, 0 and 1
+        window.add(ids.get(0), 1);
+        window.add(ids.get(1), 2);
+        window.add(ids.get(2), 3);
+
+        window.evictBefore(2);
+
+        assertFalse(window.contains(ids.get(0)));
+        assertTrue(window.contains(ids.get(1)));
+        assertTrue(window.contains(ids.get(2)));
+
+        window.evictBefore(3);
+
+        assertFalse(window.contains(ids.get(1)));
+        assertTrue(window.contains(ids.get(2)));
+        assertEquals(1, window.size());
+    }
+
+    @Test
+    public void matchesABoundedReferenceSet() {
+        Random random = new Random(7);
+
+        for (int capacity : new int[]{1, 2, 3, 5, 16, 100}) {
+            PostedUpdateWindow window = new PostedUpdateWindow(capacity);
+            Deque<UUID> reference = new ArrayDeque<>();
+            Map<UUID, Long> posted = new HashMap<>();
+            List<UUID> seen = new ArrayList<>();
+            long time = 0;
+
+            for (int i = 0; i < 20000; i++) {
+                time += random.nextInt(3);
+                int action = random.nextInt(10);
+
+                if (action < 6) {
+                    // Mostly new IDs, sometimes one seen before
+                    UUID id = seen.isEmpty() || random.nextInt(4) > 0 ? UUID.randomUUID() : seen.get(random.nextInt(seen.size()));
+                    boolean expected = !reference.contains(id);
+
+                    assertEquals(expected, window.add(id, time));
+
+                    if (expected) {
+                        if (reference.size() == capacity) {
+                            reference.removeFirst();
+                        }
+
+                        reference.addLast(id);
+                        posted.put(id, time);
+                        seen.add(id);
+                    }
+                } else if (action < 7) {
+                    long watermark = time - random.nextInt(5);
+                    window.evictBefore(watermark);
+
+                    while (!reference.isEmpty() && posted.get(reference.peekFirst()) < watermark) {
+                        reference.removeFirst();
+                    }
+                } else if (!seen.isEmpty()) {
+                    UUID id = seen.get(random.nextInt(seen.size()));
+                    assertEquals(reference.contains(id), window.contains(id));
+                }
+
+                assertEquals(reference.size(), window.size());
+            }
+
+            for (UUID id : reference) {
+                assertTrue(window.contains(id));
+            }
+        }
+    }
+}
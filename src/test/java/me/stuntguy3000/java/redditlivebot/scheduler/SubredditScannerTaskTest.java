@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016 Luke Anderson
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.stuntguy3000.java.redditlivebot.scheduler;
+
+import me.stuntguy3000.java.redditlivebot.object.reddit.Subreddit;
+import me.stuntguy3000.java.redditlivebot.object.reddit.subreddit.SubredditData;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SubredditScannerTaskTest {
+    private static final long SOURCE_LATENCY = 300;
+
+    @Test
+    public void scanTakesAboutAsLongAsTheSlowestSource() {
+        Map<String, Callable<Subreddit>> sources = new LinkedHashMap<>();
+
+        for (int i = 0; i < 4; i++) {
+            sources.put("r/source" + i, () -> {
+                Thread.sleep(SOURCE_LATENCY);
+                return listing();
+            });
+        }
+
+        long start = System.nanoTime();
+        List<Subreddit> listings = SubredditScannerTask.fetchAll(sources);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(4, listings.size());
+        // Fetched one after another the four sources would take four times as long
+        assertTrue("scan took " + elapsed + " ms", elapsed < SOURCE_LATENCY * 2);
+    }
+
+    @Test
+    public void failedSourcesAreSkippedAndOrderIsKept() {
+        Subreddit first = listing();
+        Subreddit last = listing();
+        Map<String, Callable<Subreddit>> sources = new LinkedHashMap<>();
+
+        sources.put("r/slow", () -> {
+            Thread.sleep(100);
+            return first;
+        });
+        sources.put("r/broken", () -> {
+            throw new IOException("connection reset");
+        });
+        sources.put("r/deferred", () -> null);
+        sources.put("r/empty", Subreddit::new);
+        sources.put("search \"live\"", () -> last);
+
+        List<Subreddit> listings = SubredditScannerTask.fetchAll(sources);
+
+        assertEquals(2, listings.size());
+        assertSame(first, listings.get(0));
+        assertSame(last, listings.get(1));
+    }
+
+    private static Subreddit listing() {
+        Subreddit subreddit = new Subreddit();
+        subreddit.setData(new SubredditData());
+        return subreddit;
+    }
+}